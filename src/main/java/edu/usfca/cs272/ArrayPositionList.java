@@ -0,0 +1,246 @@
+package edu.usfca.cs272;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Stores the positions of a single word within a single document as a sorted,
+ * growable array of primitive {@code int} values. Positions are appended in
+ * increasing order while a file is being indexed, so the common case of adding a
+ * position is a single array store; out-of-order positions (for example when
+ * combining two indexes) are inserted with a binary search.
+ *
+ * <p>
+ * Each position costs 4 bytes in the backing array, or at most 6 bytes once the
+ * unused capacity left by the 1.5x growth policy is included, plus roughly 40
+ * bytes of fixed overhead for the list object and its array header.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ */
+public class ArrayPositionList extends PositionList {
+	/** The default capacity of a new position list. */
+	private static final int DEFAULT_CAPACITY = 4;
+
+	/** The sorted positions, only the first {@link #size} of which are in use. */
+	private int[] positions;
+
+	/** The number of positions stored in this list. */
+	private int size;
+
+	/**
+	 * Constructs an empty position list with the default capacity.
+	 */
+	public ArrayPositionList() {
+		this.positions = new int[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Creates a position list holding a copy of a range of sorted positions.
+	 *
+	 * @param sorted the positions in increasing order without duplicates
+	 * @param from the index of the first position to copy
+	 * @param to the index after the last position to copy
+	 * @return a new position list with the positions in that range
+	 */
+	public static ArrayPositionList copyOf(IntBuffer sorted, int from, int to) {
+		int[] copy = new int[to - from];
+		sorted.get(from, copy);
+		ArrayPositionList list = new ArrayPositionList();
+		list.replace(copy, copy.length);
+		return list;
+	}
+
+	@Override
+	public boolean isCompressed() {
+		return false;
+	}
+
+	@Override
+	public boolean add(int position) {
+		if (size == 0 || position > positions[size - 1]) {
+			grow(size + 1);
+			positions[size++] = position;
+			return true;
+		}
+
+		int index = Arrays.binarySearch(positions, 0, size, position);
+
+		if (index >= 0) {
+			return false;
+		}
+
+		index = -(index + 1);
+		grow(size + 1);
+		System.arraycopy(positions, index, positions, index + 1, size - index);
+		positions[index] = position;
+		size++;
+		return true;
+	}
+
+	@Override
+	public boolean addAll(PositionList other) {
+		if (!(other instanceof ArrayPositionList array)) {
+			return super.addAll(other);
+		}
+
+		return addAll(array);
+	}
+
+	/**
+	 * Adds all of the positions in another array list to this one, keeping this
+	 * list sorted and free of duplicates.
+	 *
+	 * @param other the positions to add
+	 * @return true if this list changed as a result of the call
+	 */
+	private boolean addAll(ArrayPositionList other) {
+		if (other.size == 0) {
+			return false;
+		}
+
+		// positions from a later part of the file can be appended directly
+		if (size == 0 || other.positions[0] > positions[size - 1]) {
+			grow(size + other.size);
+			System.arraycopy(other.positions, 0, positions, size, other.size);
+			size += other.size;
+			return true;
+		}
+
+		int[] merged = new int[size + other.size];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+
+		while (i < size && j < other.size) {
+			int a = positions[i];
+			int b = other.positions[j];
+
+			if (a < b) {
+				merged[k++] = a;
+				i++;
+			}
+			else if (b < a) {
+				merged[k++] = b;
+				j++;
+			}
+			else {
+				merged[k++] = a;
+				i++;
+				j++;
+			}
+		}
+
+		while (i < size) {
+			merged[k++] = positions[i++];
+		}
+
+		while (j < other.size) {
+			merged[k++] = other.positions[j++];
+		}
+
+		boolean changed = k != size;
+		positions = merged;
+		size = k;
+		return changed;
+	}
+
+	@Override
+	public boolean contains(int position) {
+		return Arrays.binarySearch(positions, 0, size, position) >= 0;
+	}
+
+	/**
+	 * Returns the position stored at the index of this sorted list.
+	 *
+	 * @param index the index of the position to return
+	 * @return the position at that index
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+
+		return positions[index];
+	}
+
+	@Override
+	public int first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+
+		return positions[0];
+	}
+
+	@Override
+	public int last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+
+		return positions[size - 1];
+	}
+
+	@Override
+	public void trimToSize() {
+		if (positions.length != size) {
+			positions = Arrays.copyOf(positions, size);
+		}
+	}
+
+	@Override
+	public int[] toIntArray() {
+		return Arrays.copyOf(positions, size);
+	}
+
+	@Override
+	protected void replace(int[] sorted, int length) {
+		positions = sorted;
+		size = length;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			/** The index of the next position to return. */
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public int nextInt() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+
+				return positions[next++];
+			}
+		};
+	}
+
+	/**
+	 * Ensures the backing array can hold at least the specified number of
+	 * positions, growing it by half again its size when necessary.
+	 *
+	 * @param capacity the minimum capacity required
+	 */
+	private void grow(int capacity) {
+		if (capacity > positions.length) {
+			int grown = positions.length + (positions.length >> 1);
+			positions = Arrays.copyOf(positions, Math.max(capacity, grown));
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package edu.usfca.cs272;
+
+/**
+ * Scores a document with Okapi BM25. Each query word contributes its inverse
+ * document frequency, so rare words count for more than common ones, scaled by
+ * its frequency in the document. The frequency saturates as it grows and is
+ * normalized by the length of the document relative to the average length.
+ *
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public class BM25Scorer implements Scorer {
+	/** The default term frequency saturation. */
+	public static final double DEFAULT_K1 = 1.2;
+
+	/** The default document length normalization. */
+	public static final double DEFAULT_B = 0.75;
+
+	/** The term frequency saturation. */
+	private final double k1;
+
+	/** The document length normalization, between 0 and 1. */
+	private final double b;
+
+	/**
+	 * Constructs a scorer with the default parameters.
+	 */
+	public BM25Scorer() {
+		this(DEFAULT_K1, DEFAULT_B);
+	}
+
+	/**
+	 * Constructs a scorer with the parameters provided.
+	 *
+	 * @param k1 the term frequency saturation, at least 0
+	 * @param b the document length normalization, between 0 and 1
+	 * @throws IllegalArgumentException if a parameter is out of range
+	 */
+	public BM25Scorer(double k1, double b) {
+		if (!(k1 >= 0) || !(b >= 0 && b <= 1)) {
+			throw new IllegalArgumentException("BM25 requires k1 >= 0 and 0 <= b <= 1.");
+		}
+
+		this.k1 = k1;
+		this.b = b;
+	}
+
+	@Override
+	public double weight(int documentFrequency, int documents) {
+		// the inverse document frequency, which stays positive for words in more than half of the documents
+		return Math.log(1 + (documents - documentFrequency + 0.5) / (documentFrequency + 0.5));
+	}
+
+	@Override
+	public double score(double score, int count, int frequency, double weight, int length, double averageLength) {
+		double normalized = k1 * (1 - b + b * length / averageLength);
+		return score + weight * frequency * (k1 + 1) / (frequency + normalized);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("bm25(k1=%s, b=%s)", k1, b);
+	}
+}
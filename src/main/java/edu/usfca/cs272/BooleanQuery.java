@@ -0,0 +1,152 @@
+package edu.usfca.cs272;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * A query line with boolean operators. A word prefixed with a plus, such as
+ * {@code +fox}, is required and a word prefixed with a minus, such as
+ * {@code -dog}, is excluded. A query such as {@code +quick +fox brown -dog}
+ * matches the documents containing both required words and neither excluded
+ * word, and the optional words only add to the score of a match. Without any
+ * required words, a document must contain at least one optional word. A line
+ * without any operators is an ordinary query.
+ *
+ * <p>
+ * Boolean queries always match whole words, even when partial search is
+ * enabled for ordinary queries.
+ */
+public class BooleanQuery {
+	/** The stemmed words every match must contain. */
+	private final Set<String> required;
+
+	/** The stemmed words that only add to the score of a match. */
+	private final Set<String> optional;
+
+	/** The stemmed words no match may contain. */
+	private final Set<String> excluded;
+
+	/**
+	 * Constructs a boolean query.
+	 *
+	 * @param required the stemmed words every match must contain
+	 * @param optional the stemmed words that only add to the score of a match
+	 * @param excluded the stemmed words no match may contain
+	 */
+	private BooleanQuery(Set<String> required, Set<String> optional, Set<String> excluded) {
+		this.required = required;
+		this.optional = optional;
+		this.excluded = excluded;
+	}
+
+	/**
+	 * Parses a query line into a boolean query. Each whitespace separated token
+	 * starting with a plus or minus applies that operator to every stem of the
+	 * rest of the token. A word that is also required is not optional.
+	 *
+	 * @param line the query line
+	 * @param stemmer the stemmer to use
+	 * @return the boolean query, or null if no token with any words has an
+	 *   operator
+	 */
+	public static BooleanQuery parse(String line, Stemmer stemmer) {
+		TreeSet<String> required = new TreeSet<>();
+		TreeSet<String> optional = new TreeSet<>();
+		TreeSet<String> excluded = new TreeSet<>();
+
+		for (String token : FileStemmer.split(line)) {
+			char operator = token.charAt(0);
+
+			if (operator == '+') {
+				FileStemmer.addStems(token.substring(1), stemmer, required);
+			} else if (operator == '-') {
+				FileStemmer.addStems(token.substring(1), stemmer, excluded);
+			} else {
+				FileStemmer.addStems(token, stemmer, optional);
+			}
+		}
+
+		if (required.isEmpty() && excluded.isEmpty()) {
+			return null;
+		}
+
+		optional.removeAll(required);
+
+		return new BooleanQuery(Collections.unmodifiableSet(required), Collections.unmodifiableSet(optional),
+				Collections.unmodifiableSet(excluded));
+	}
+
+	/**
+	 * Returns the stemmed words every match must contain.
+	 *
+	 * @return an unmodifiable sorted set of the required words
+	 */
+	public Set<String> getRequired() {
+		return required;
+	}
+
+	/**
+	 * Returns the stemmed words that only add to the score of a match.
+	 *
+	 * @return an unmodifiable sorted set of the optional words
+	 */
+	public Set<String> getOptional() {
+		return optional;
+	}
+
+	/**
+	 * Returns the stemmed words no match may contain.
+	 *
+	 * @return an unmodifiable sorted set of the excluded words
+	 */
+	public Set<String> getExcluded() {
+		return excluded;
+	}
+
+	/**
+	 * Returns the key of this query in the search results, which is the required
+	 * words with a plus, the optional words, and the excluded words with a minus,
+	 * each in sorted order.
+	 *
+	 * @return the key of this query
+	 */
+	public String getKey() {
+		StringBuilder key = new StringBuilder();
+
+		for (String word : required) {
+			key.append(" +").append(word);
+		}
+
+		for (String word : optional) {
+			key.append(' ').append(word);
+		}
+
+		for (String word : excluded) {
+			key.append(" -").append(word);
+		}
+
+		return key.substring(1);
+	}
+
+	/**
+	 * Searches an index for this query.
+	 *
+	 * @param index the index to search
+	 * @param limit the maximum number of results, or 0 or less for every result
+	 * @param scorer the scorer to rank the results with
+	 * @return the sorted search results
+	 * @see InvertedIndex#booleanSearch(Set, Set, Set, int, Scorer)
+	 */
+	public List<InvertedIndex.SearchResult> search(InvertedIndex index, int limit, Scorer scorer) {
+		return index.booleanSearch(required, optional, excluded, limit, scorer);
+	}
+
+	@Override
+	public String toString() {
+		return getKey();
+	}
+}
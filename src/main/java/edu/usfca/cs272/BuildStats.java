@@ -0,0 +1,131 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the directories and files visited while building an index, and the
+ * time spent enumerating directories separately from the time spent indexing
+ * files. Times are summed across every thread, so with several threads they
+ * may add up to more than the elapsed time.
+ *
+ * <p>
+ * This class is thread-safe.
+ */
+public class BuildStats {
+	/** The number of nanoseconds in a millisecond. */
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	/** The number of directories listed. */
+	private final LongAdder directories;
+
+	/** The number of text files found. */
+	private final LongAdder files;
+
+	/** The nanoseconds spent listing directories. */
+	private final LongAdder enumeration;
+
+	/** The nanoseconds spent indexing files. */
+	private final LongAdder indexing;
+
+	/** The nanoseconds from the start to the end of the build. */
+	private final LongAdder elapsed;
+
+	/**
+	 * Constructs empty statistics.
+	 */
+	public BuildStats() {
+		this.directories = new LongAdder();
+		this.files = new LongAdder();
+		this.enumeration = new LongAdder();
+		this.indexing = new LongAdder();
+		this.elapsed = new LongAdder();
+	}
+
+	/**
+	 * Records a directory that was listed.
+	 *
+	 * @param nanos the nanoseconds spent listing it, not counting any files
+	 *   indexed while listing it
+	 */
+	public void addDirectory(long nanos) {
+		directories.increment();
+		enumeration.add(nanos);
+	}
+
+	/**
+	 * Records a text file that was found.
+	 */
+	public void addFile() {
+		files.increment();
+	}
+
+	/**
+	 * Records time spent indexing a file.
+	 *
+	 * @param nanos the nanoseconds spent indexing
+	 */
+	public void addIndexing(long nanos) {
+		indexing.add(nanos);
+	}
+
+	/**
+	 * Records the time from the start to the end of a build.
+	 *
+	 * @param nanos the nanoseconds the build took
+	 */
+	public void addElapsed(long nanos) {
+		elapsed.add(nanos);
+	}
+
+	/**
+	 * Returns the number of directories listed.
+	 *
+	 * @return the number of directories
+	 */
+	public long getDirectories() {
+		return directories.sum();
+	}
+
+	/**
+	 * Returns the number of text files found.
+	 *
+	 * @return the number of files
+	 */
+	public long getFiles() {
+		return files.sum();
+	}
+
+	/**
+	 * Returns the time spent listing directories, summed across threads.
+	 *
+	 * @return the enumeration time in nanoseconds
+	 */
+	public long getEnumerationNanos() {
+		return enumeration.sum();
+	}
+
+	/**
+	 * Returns the time spent indexing files, summed across threads.
+	 *
+	 * @return the indexing time in nanoseconds
+	 */
+	public long getIndexingNanos() {
+		return indexing.sum();
+	}
+
+	/**
+	 * Returns the time from the start to the end of the build.
+	 *
+	 * @return the elapsed time in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsed.sum();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Directories: %d, Files: %d, Enumeration: %.1f ms, Indexing: %.1f ms, Elapsed: %.1f ms",
+				getDirectories(), getFiles(), getEnumerationNanos() / NANOS_PER_MILLI,
+				getIndexingNanos() / NANOS_PER_MILLI, getElapsedNanos() / NANOS_PER_MILLI);
+	}
+}
@@ -0,0 +1,180 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Indexes a single large file with several threads. The file is memory-mapped
+ * and split into chunks of about {@link #CHUNK_SIZE} bytes that each end at a
+ * line break, so no line (and therefore no word) is split between chunks. Every
+ * chunk is decoded, parsed, and stemmed into its own index in parallel with
+ * positions starting at 1, and the chunk indexes are then appended in order with
+ * their positions shifted by the number of words in the chunks before them. The
+ * positions and word counts are exactly those of indexing the file line by line
+ * with {@link InvertedIndexBuilder#processFile(Path, InvertedIndex)}.
+ *
+ * <p>
+ * A line feed byte never appears inside a multi-byte UTF-8 character, so chunks
+ * can be split and decoded independently of each other.
+ */
+public class ChunkedFileIndexer {
+	/** The number of bytes each chunk holds before extending to the next line break. */
+	public static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/** The size in bytes from which a file is split into chunks. */
+	public static final long LARGE_FILE_SIZE = 2L * CHUNK_SIZE;
+
+	/** The number of bytes read at a time while searching for a line break. */
+	private static final int SCAN_SIZE = 4096;
+
+	/**
+	 * Determines whether a file is large enough to be split into chunks.
+	 *
+	 * @param size the size of the file in bytes
+	 * @return true if the file should be indexed in chunks
+	 */
+	public static boolean isLarge(long size) {
+		return size >= LARGE_FILE_SIZE;
+	}
+
+	/**
+	 * Indexes a file by parsing and stemming its chunks in parallel and appending
+	 * the chunk indexes to the index provided in order.
+	 *
+	 * @param file The file to be processed.
+	 * @param invertedIndex The inverted index to which the extracted words and their positions are added.
+	 * @throws IOException If an I/O error occurs while reading from the file.
+	 */
+	public static void processFile(Path file, InvertedIndex invertedIndex) throws IOException {
+		String location = file.toString();
+		invertedIndex.addDocument(location);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			List<Long> bounds = findChunks(channel);
+
+			List<InvertedIndex> chunks;
+			try {
+				chunks = IntStream.range(0, bounds.size() - 1).parallel()
+						.mapToObj(i -> processChunk(channel, bounds.get(i), bounds.get(i + 1), location, invertedIndex.isCompressed()))
+						.toList();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			int offset = 0;
+
+			for (InvertedIndex chunk : chunks) {
+				invertedIndex.append(chunk, offset);
+				offset += chunk.getCount(location);
+			}
+		}
+	}
+
+	/**
+	 * Finds the byte offsets that split the file into chunks ending at line breaks.
+	 *
+	 * @param channel the channel of the file
+	 * @return the offset of the start of every chunk followed by the size of the file
+	 * @throws IOException If an I/O error occurs while reading from the file.
+	 */
+	private static List<Long> findChunks(FileChannel channel) throws IOException {
+		long size = channel.size();
+		List<Long> bounds = new ArrayList<>();
+		ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+		long start = 0;
+		bounds.add(start);
+
+		while (start < size) {
+			long end = Math.min(size, start + CHUNK_SIZE);
+
+			// extend the chunk past the next line feed
+			while (end < size) {
+				scan.clear();
+				int read = channel.read(scan, end);
+
+				if (read <= 0) {
+					end = size;
+					break;
+				}
+
+				int newline = indexOf(scan, (byte) '\n', read);
+
+				if (newline >= 0) {
+					end += newline + 1;
+					break;
+				}
+
+				end += read;
+			}
+
+			bounds.add(end);
+			start = end;
+		}
+
+		if (bounds.size() == 1) {
+			bounds.add(size);
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Finds the first occurrence of a byte within the bytes read into a buffer.
+	 *
+	 * @param buffer the buffer read into
+	 * @param target the byte to find
+	 * @param length the number of bytes read
+	 * @return the index of the byte, or -1 if it was not read
+	 */
+	private static int indexOf(ByteBuffer buffer, byte target, int length) {
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(i) == target) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Maps, decodes, parses, and stems one chunk of a file into its own index.
+	 *
+	 * @param channel the channel of the file
+	 * @param start the offset of the first byte of the chunk
+	 * @param end the offset after the last byte of the chunk
+	 * @param location the location of the file
+	 * @param compressed true to store positions as compressed gaps
+	 * @return an index of the chunk with positions starting at 1
+	 * @throws UncheckedIOException If an I/O error occurs while reading from the file.
+	 */
+	private static InvertedIndex processChunk(FileChannel channel, long start, long end, String location, boolean compressed) {
+		InvertedIndex chunk = new InvertedIndex(compressed);
+		int document = chunk.addDocument(location);
+
+		try {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			String text = UTF_8.newDecoder().decode(bytes).toString();
+			InvertedIndexBuilder.processReader(new BufferedReader(new StringReader(text)), document, chunk);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return chunk;
+	}
+
+	/** Prevent instantiating this class of static methods. */
+	private ChunkedFileIndexer() {
+	}
+}
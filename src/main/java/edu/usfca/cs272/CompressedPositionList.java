@@ -0,0 +1,171 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Stores the positions of a single word within a single document as delta
+ * encoded, variable-byte integers. Positions within a document are strictly
+ * increasing, so only the gap from the previous position is stored, using 7 bits
+ * per byte with the high bit set on every byte except the last. Gaps below 128
+ * take a single byte, and gaps below 16,384 take two.
+ *
+ * <p>
+ * Positions are decoded lazily as the list is iterated, so searches that only
+ * need the number of positions never decode anything. Adding a position in
+ * increasing order appends its gap; any other addition decodes the list, merges
+ * the position in, and encodes it again.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ */
+public class CompressedPositionList extends PositionList {
+	/** The default capacity in bytes of a new position list. */
+	private static final int DEFAULT_CAPACITY = 4;
+
+	/** The encoded gaps, only the first {@link #length} bytes of which are in use. */
+	private byte[] bytes;
+
+	/** The number of bytes in use. */
+	private int length;
+
+	/** The number of positions stored in this list. */
+	private int size;
+
+	/** The last (largest) position stored in this list. */
+	private int last;
+
+	/**
+	 * Constructs an empty position list with the default capacity.
+	 */
+	public CompressedPositionList() {
+		this.bytes = new byte[DEFAULT_CAPACITY];
+		this.length = 0;
+		this.size = 0;
+		this.last = 0;
+	}
+
+	@Override
+	public boolean isCompressed() {
+		return true;
+	}
+
+	@Override
+	public boolean add(int position) {
+		if (size == 0 || position > last) {
+			append(position);
+			return true;
+		}
+
+		int[] positions = toIntArray();
+		int index = Arrays.binarySearch(positions, position);
+
+		if (index >= 0) {
+			return false;
+		}
+
+		index = -(index + 1);
+		int[] inserted = new int[size + 1];
+		System.arraycopy(positions, 0, inserted, 0, index);
+		inserted[index] = position;
+		System.arraycopy(positions, index, inserted, index + 1, size - index);
+		replace(inserted, inserted.length);
+		return true;
+	}
+
+	@Override
+	public int last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+
+		return last;
+	}
+
+	@Override
+	public void trimToSize() {
+		if (bytes.length != length) {
+			bytes = Arrays.copyOf(bytes, length);
+		}
+	}
+
+	@Override
+	protected void replace(int[] sorted, int count) {
+		bytes = new byte[Math.max(DEFAULT_CAPACITY, count)];
+		length = 0;
+		size = 0;
+		last = 0;
+
+		for (int i = 0; i < count; i++) {
+			append(sorted[i]);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			/** The offset of the next encoded gap. */
+			private int offset = 0;
+
+			/** The last position decoded. */
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return offset < length;
+			}
+
+			@Override
+			public int nextInt() {
+				if (offset >= length) {
+					throw new NoSuchElementException();
+				}
+
+				int gap = 0;
+				int shift = 0;
+				byte next;
+
+				do {
+					next = bytes[offset++];
+					gap |= (next & 0x7F) << shift;
+					shift += 7;
+				} while (next < 0);
+
+				position += gap;
+				return position;
+			}
+		};
+	}
+
+	/**
+	 * Appends a position larger than every position in this list by encoding its
+	 * gap from the last position.
+	 *
+	 * @param position the position to append
+	 */
+	private void append(int position) {
+		int gap = size == 0 ? position : position - last;
+
+		// each byte holds 7 bits of the gap, so a gap needs between 1 and 5 bytes
+		int needed = length + Math.max(1, (38 - Integer.numberOfLeadingZeros(gap)) / 7);
+
+		if (needed > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(needed, bytes.length + (bytes.length >> 1)));
+		}
+
+		while ((gap & ~0x7F) != 0) {
+			bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+			gap >>>= 7;
+		}
+
+		bytes[length++] = (byte) gap;
+		last = position;
+		size++;
+	}
+}
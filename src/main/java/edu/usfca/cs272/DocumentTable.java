@@ -0,0 +1,280 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns each document location (file path) a dense integer identifier so the
+ * inverted index can store postings by document ID instead of repeating the path
+ * for every word. Identifiers are assigned in the order locations are added,
+ * starting at 0, and are never reused. The table also stores the word count of
+ * each document.
+ *
+ * Paths are only appended, so {@link #getPath(int)} may be called for any
+ * identifier that was returned by this table without external synchronization.
+ * All other methods are not thread-safe; if multiple threads access this table
+ * concurrently, access must be synchronized externally.
+ */
+public class DocumentTable {
+	/** The name of the document table file in a segment directory. */
+	public static final String DOCUMENTS_FILE = "documents.bin";
+
+	/** The default capacity of a new document table. */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Maps each location to its document ID. */
+	private final HashMap<String, Integer> ids;
+
+	/**
+	 * The location of each document ID. Reassigned whenever a path is added so
+	 * readers see every path published before the ID they were given.
+	 */
+	private volatile String[] paths;
+
+	/** The word count of each document ID, or 0 if no words were added. */
+	private int[] counts;
+
+	/** The number of document IDs assigned. */
+	private int size;
+
+	/** The number of times documents were added or their word counts changed. */
+	private long modifications;
+
+	/** The number of documents with a word count above 0. */
+	private int counted;
+
+	/** The sum of the word counts of every document. */
+	private long total;
+
+	/**
+	 * Constructs an empty document table.
+	 */
+	public DocumentTable() {
+		this.ids = new HashMap<>();
+		this.paths = new String[DEFAULT_CAPACITY];
+		this.counts = new int[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the document ID for the location, assigning the next available ID if
+	 * the location has not been seen before.
+	 *
+	 * @param location the location to add
+	 * @return the document ID of the location
+	 */
+	public int add(String location) {
+		Integer id = ids.get(location);
+
+		if (id != null) {
+			return id;
+		}
+
+		modifications++;
+
+		String[] grown = paths;
+
+		if (size == grown.length) {
+			grown = Arrays.copyOf(grown, size + (size >> 1));
+			counts = Arrays.copyOf(counts, grown.length);
+		}
+
+		grown[size] = location;
+		ids.put(location, size);
+		paths = grown;
+		return size++;
+	}
+
+	/**
+	 * Returns the document ID of the location.
+	 *
+	 * @param location the location to look up
+	 * @return the document ID, or -1 if the location is not in this table
+	 */
+	public int getId(String location) {
+		return ids.getOrDefault(location, -1);
+	}
+
+	/**
+	 * Returns the location of the document ID.
+	 *
+	 * @param id the document ID to resolve
+	 * @return the location of the document
+	 * @throws IndexOutOfBoundsException if the ID was not assigned by this table
+	 */
+	public String getPath(int id) {
+		String path = paths[id];
+
+		if (path == null) {
+			throw new IndexOutOfBoundsException(id);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Returns the word count of the document ID.
+	 *
+	 * @param id the document ID
+	 * @return the word count, or 0 if no words were added for the document
+	 */
+	public int getCount(int id) {
+		return id >= 0 && id < size ? counts[id] : 0;
+	}
+
+	/**
+	 * Raises the word count of the document ID to at least the count provided.
+	 *
+	 * @param id the document ID
+	 * @param count the new word count if larger than the current one
+	 */
+	public void updateCount(int id, int count) {
+		if (count > counts[id]) {
+			if (counts[id] == 0) {
+				counted++;
+			}
+
+			total += count - counts[id];
+			counts[id] = count;
+			modifications++;
+		}
+	}
+
+	/**
+	 * Resets the word count of the document ID to 0, so it is no longer included
+	 * in the word counts. The document keeps its ID.
+	 *
+	 * @param id the document ID
+	 */
+	public void resetCount(int id) {
+		if (counts[id] > 0) {
+			counted--;
+			total -= counts[id];
+		}
+
+		counts[id] = 0;
+		modifications++;
+	}
+
+	/**
+	 * Returns the number of documents with a word count above 0.
+	 *
+	 * @return the number of documents with words
+	 */
+	public int getCountedDocuments() {
+		return counted;
+	}
+
+	/**
+	 * Returns the average word count of the documents with words. The totals
+	 * are kept up to date as counts change, so this takes constant time.
+	 *
+	 * @return the average word count, or 0 if no document has words
+	 */
+	public double getAverageCount() {
+		return counted == 0 ? 0 : total / (double) counted;
+	}
+
+	/**
+	 * Returns the number of times a document was added or its word count
+	 * changed. Every change to an inverted index adds a document or changes a
+	 * word count, so an index whose table reports the same number has not
+	 * changed.
+	 *
+	 * @return the number of modifications of this table
+	 */
+	public long getModifications() {
+		return modifications;
+	}
+
+	/**
+	 * Returns the number of document IDs assigned by this table.
+	 *
+	 * @return the number of documents
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the location and word count of every document to the document table
+	 * file of a segment directory, in document ID order.
+	 *
+	 * @param directory the segment directory to write to
+	 * @throws IOException if an IO error occurs
+	 * @see FrozenIndex#write(Path)
+	 */
+	public void write(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(DOCUMENTS_FILE))))) {
+			FrozenIndex.writeMagic(out);
+			out.writeInt(size);
+
+			for (int id = 0; id < size; id++) {
+				byte[] bytes = paths[id].getBytes(UTF_8);
+				out.writeInt(counts[id]);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Reads the document table file of a segment directory into this empty table,
+	 * so every document keeps the ID it was written with.
+	 *
+	 * @param directory the segment directory to read from
+	 * @throws IOException if an IO error occurs or the file is not a document table
+	 * @throws IllegalStateException if this table is not empty
+	 */
+	public void read(Path directory) throws IOException {
+		if (size != 0) {
+			throw new IllegalStateException("Cannot read into a document table that is not empty.");
+		}
+
+		Path file = directory.resolve(DOCUMENTS_FILE);
+
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			FrozenIndex.checkMagic(ByteBuffer.wrap(in.readNBytes(Integer.BYTES)), file);
+			int total = in.readInt();
+
+			for (int i = 0; i < total; i++) {
+				int count = in.readInt();
+				int id = add(new String(in.readNBytes(in.readInt()), UTF_8));
+				updateCount(id, count);
+			}
+		}
+	}
+
+	/**
+	 * Returns the word count of every document with at least one word, sorted by
+	 * location.
+	 *
+	 * @return an unmodifiable map of locations to word counts
+	 */
+	public Map<String, Integer> viewCounts() {
+		TreeMap<String, Integer> sorted = new TreeMap<>();
+
+		for (int id = 0; id < size; id++) {
+			if (counts[id] > 0) {
+				sorted.put(paths[id], counts[id]);
+			}
+		}
+
+		return Collections.unmodifiableMap(sorted);
+	}
+}
@@ -21,33 +21,91 @@ public class Driver {
 	public static void main(String[] args) {
 		ArgumentParser parser = new ArgumentParser(args);
 		Boolean partialSearch = parser.hasFlag("-partial");
+		boolean compressed = parser.hasFlag("-compress");
+		int limit = parser.hasFlag("-limit") ? parser.getInteger("-limit", 10) : 0;
+		Scorer scorer = parser.hasFlag("-bm25") ? new BM25Scorer() : FrequencyScorer.INSTANCE;
 		InvertedIndex invertedIndex ;
-		WorkQueue workQueue = null;
+		TaskQueue workQueue = null;
 		MultiThreadedInvertedIndex threadSafe = null;
 		QueryInterface queryBuilder = null; 
+		BuildStats buildStats = null;
+		Manifest manifest = null;
+		Path incremental = parser.getPath("-incremental", Path.of("segment"));
+		IndexWatcher watcher = null;
+		Thread watching = null;
 
 
-		if (parser.hasFlag("-threads")) {
+		if (parser.hasFlag("-threads") || parser.hasFlag("-virtual")) {
 			int numThreads = parser.getInteger("-threads", WorkQueue.DEFAULT);
 			if (numThreads < 1) {
 				numThreads = WorkQueue.DEFAULT;
 			}
-			workQueue = new WorkQueue(numThreads);
-			threadSafe = new MultiThreadedInvertedIndex();
+			if (parser.hasFlag("-virtual")) {
+				workQueue = new VirtualThreadQueue(numThreads);
+			} else if (parser.hasFlag("-steal")) {
+				workQueue = new WorkStealingQueue(numThreads);
+			} else {
+				workQueue = new WorkQueue(numThreads);
+			}
+			if (parser.hasFlag("-shards")) {
+				int numShards = parser.getInteger("-shards", ShardedInvertedIndex.DEFAULT_SHARDS);
+				if (numShards < 1) {
+					numShards = ShardedInvertedIndex.DEFAULT_SHARDS;
+				}
+				threadSafe = new ShardedInvertedIndex(compressed, numShards);
+			} else {
+				threadSafe = new MultiThreadedInvertedIndex(compressed);
+			}
 			invertedIndex = threadSafe;
-			queryBuilder = new MultiThreadedQueryBuilder(threadSafe, partialSearch, workQueue);
 		} else {
-			invertedIndex = new InvertedIndex();
-			queryBuilder = new QueryBuilder(invertedIndex, partialSearch);
+			invertedIndex = new InvertedIndex(compressed);
+		}
+
+		QueryCache cache = null;
+		Path cacheFile = parser.getPath("-cache");
+
+		if (parser.hasFlag("-cache")) {
+			int capacity = parser.getInteger("-cachesize", QueryCache.DEFAULT_CAPACITY);
+			cache = new QueryCache(invertedIndex, capacity < 1 ? QueryCache.DEFAULT_CAPACITY : capacity);
+		}
+
+		if (threadSafe != null) {
+			queryBuilder = new MultiThreadedQueryBuilder(threadSafe, partialSearch, workQueue, limit, cache, scorer);
+		} else {
+			queryBuilder = new QueryBuilder(invertedIndex, partialSearch, limit, cache, scorer);
 		}
 		
-		if (parser.hasFlag("-text")) {
+		if (parser.hasFlag("-load")) {
+			Path segment = parser.getPath("-load", Path.of("segment"));
+			try {
+				invertedIndex.openSegment(segment);
+			} catch (IOException e) {
+				System.err.println("Error opening index segment: " + segment);
+			}
+		} else if (parser.hasFlag("-import")) {
+			Path json = parser.getPath("-import", Path.of("index.json"));
+			try {
+				JsonReader.readIndex(json, invertedIndex);
+			} catch (IOException e) {
+				System.err.println("Error importing JSON index: " + json);
+			}
+		} else if (parser.hasFlag("-text")) {
 			Path input = parser.getPath("-text");
 
 			if (input != null) {
 				try {
-					if (workQueue != null && threadSafe != null) {
-						MultiThreadedInvertedIndexBuilder.buildIndex(input, threadSafe, workQueue);
+					if (threadSafe != null && parser.hasFlag("-watch")) {
+						// register before building so no change made during the build is missed
+						watcher = new IndexWatcher(input, threadSafe, workQueue.size(), IndexWatcher.DEFAULT_DEBOUNCE);
+					}
+
+					if (parser.hasFlag("-incremental")) {
+						manifest = IncrementalIndexer.update(input, invertedIndex, incremental, workQueue);
+					} else if (workQueue != null && threadSafe != null && parser.hasFlag("-reduce")) {
+						MultiThreadedInvertedIndexBuilder.reduceIndex(input, threadSafe, workQueue.size());
+					} else if (workQueue != null && threadSafe != null) {
+						buildStats = new BuildStats();
+						MultiThreadedInvertedIndexBuilder.buildIndex(input, threadSafe, workQueue, buildStats);
 					} else {
 						InvertedIndexBuilder.buildIndex(input, invertedIndex);
 					}
@@ -60,6 +118,22 @@ public class Driver {
 			}
 		}
 
+		if (watcher != null) {
+			// the index keeps changing while watched, so it is only frozen once watching stops
+			watching = Thread.ofPlatform().name("index-watcher").start(watcher);
+		} else {
+			// the index is only read from here on, so compact it for faster lock-free searches
+			invertedIndex.freeze();
+		}
+
+		if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+			try {
+				cache.read(cacheFile);
+			} catch (IOException e) {
+				System.err.println("Error reading query cache: " + cacheFile);
+			}
+		}
+
 		if (parser.hasFlag("-query")) {
 			Path queryFile = parser.getPath("-query");
 			if (queryFile != null && Files.isRegularFile(queryFile)) {
@@ -73,10 +147,63 @@ public class Driver {
 			}
 		}
 
+		if (watcher != null) {
+			int seconds = parser.getInteger("-watch", 60);
+			try {
+				Thread.sleep(seconds * 1000L);
+				watcher.close();
+				watching.join();
+			} catch (InterruptedException | IOException e) {
+				System.err.println("Error watching input path: " + parser.getPath("-text"));
+			}
+			invertedIndex.freeze();
+		}
+
+		if (cacheFile != null) {
+			try {
+				cache.write(cacheFile);
+			} catch (IOException e) {
+				System.err.println("Error writing query cache: " + cacheFile);
+			}
+		}
+
+		if (manifest != null) {
+			try {
+				IncrementalIndexer.save(invertedIndex, manifest, incremental);
+			} catch (IOException e) {
+				System.err.println("Error writing incremental index: " + incremental);
+			}
+		}
+
+		if (parser.hasFlag("-save")) {
+			Path segment = parser.getPath("-save", Path.of("segment"));
+			try {
+				invertedIndex.writeSegment(segment);
+			} catch (IOException e) {
+				System.err.println("Error writing index segment: " + segment);
+			}
+		}
+
 		if (workQueue != null) {
 			workQueue.shutdown();
 		}
 
+		if (parser.hasFlag("-stats")) {
+			if (buildStats != null) {
+				System.out.println(buildStats);
+			}
+			if (watcher != null) {
+				System.out.println(watcher);
+			}
+			if (cache != null) {
+				System.out.println(cache);
+			}
+			if (queryBuilder instanceof MultiThreadedQueryBuilder threaded) {
+				System.out.println("Coalesced queries: " + threaded.getCoalesced());
+			}
+			System.out.println(StemCache.SHARED);
+		}
+
 		if (parser.hasFlag("-counts")) {
 			Path output = parser.getPath("-counts", Path.of("counts.json"));
 			try {
@@ -74,12 +74,12 @@ public class FileStemmer {
 	 * @param stemmer the stemmer to use
 	 * @param stems the collection to add stems
 	 *
-	 * @see #parse(String)
+	 * @see Tokenizer#parse(String)
 	 * @see Stemmer#stem(CharSequence)
 	 * @see Collection#add(Object)
 	 */
 	public static void addStems(String line, Stemmer stemmer, Collection<String> stems) {
-		String[] parsed = parse(line);
+		String[] parsed = Tokenizer.parse(line);
 		String stemmed = "";
 
 		for (String str : parsed) {
@@ -0,0 +1,36 @@
+package edu.usfca.cs272;
+
+/**
+ * Scores a document by the total frequency of the query words in it divided by
+ * the number of words in it. This is the default scorer of every search.
+ */
+public class FrequencyScorer implements Scorer {
+	/** The scorer shared by every search that does not choose another one. */
+	public static final FrequencyScorer INSTANCE = new FrequencyScorer();
+
+	/**
+	 * Constructs the scorer. Use {@link #INSTANCE} instead, since it has no state.
+	 */
+	private FrequencyScorer() {
+	}
+
+	@Override
+	public double weight(int documentFrequency, int documents) {
+		return 1;
+	}
+
+	@Override
+	public double score(double score, int count, int frequency, double weight, int length, double averageLength) {
+		return count / (double) length;
+	}
+
+	@Override
+	public boolean isAdditive() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "frequency";
+	}
+}
@@ -0,0 +1,708 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A read-only snapshot of the words and postings of an inverted index, compacted
+ * into sorted flat arrays: a sorted array of words, the offset of each word's
+ * postings, the document ID of every posting, the offset of each posting's
+ * positions, and every position. The postings of word {@code w} are stored at
+ * indexes {@code wordStarts[w]} through {@code wordStarts[w + 1] - 1}, and the
+ * positions of posting {@code p} at indexes {@code positionStarts[p]} through
+ * {@code positionStarts[p + 1] - 1}.
+ *
+ * <p>
+ * The arrays are held in {@link IntBuffer} objects so a snapshot may live on the
+ * heap or be memory-mapped directly from a segment written by
+ * {@link #write(Path)}. A segment directory holds a term dictionary file with
+ * the sorted words and a postings file with the four integer arrays, all stored
+ * in big-endian order. Each array is mapped separately and must be smaller than
+ * 2 GB on disk. The term dictionary is front-coded: each word is stored as the
+ * number of leading bytes it shares with the word before it followed by the
+ * remaining bytes, since sorted words share long prefixes.
+ *
+ * <p>
+ * Words starting with a prefix are contiguous in the sorted array, so the words
+ * matching a partial search are found with two binary searches. Short prefixes
+ * match many words, so the first search for a short prefix matching at least
+ * {@link #HOT_PREFIX_WORDS} words sums the postings of every matching word into
+ * a single aggregate list of documents and frequencies, which later searches for
+ * the same prefix reuse instead of walking every word again.
+ *
+ * <p>
+ * A snapshot is never modified after it is constructed, so it may be read by any
+ * number of threads without locking once it has been safely published.
+ *
+ * @see InvertedIndex#freeze()
+ */
+public class FrozenIndex {
+	/** The name of the term dictionary file in a segment directory. */
+	public static final String WORDS_FILE = "words.bin";
+
+	/** The name of the postings file in a segment directory. */
+	public static final String POSTINGS_FILE = "postings.bin";
+
+	/** The longest prefix whose aggregate postings are kept. */
+	public static final int HOT_PREFIX_LENGTH = 2;
+
+	/** The fewest words a prefix must match before its aggregate postings are kept. */
+	public static final int HOT_PREFIX_WORDS = 64;
+
+	/** Identifies the files of a segment, and the version of their format. */
+	private static final int MAGIC = 0x49445832;
+
+	/** The sorted words. */
+	private final String[] words;
+
+	/** The offset of the first posting of each word, plus the total number of postings. */
+	private final IntBuffer wordStarts;
+
+	/** The document ID of every posting. */
+	private final IntBuffer documents;
+
+	/** The offset of the first position of each posting, plus the total number of positions. */
+	private final IntBuffer positionStarts;
+
+	/** The positions of every posting. */
+	private final IntBuffer positions;
+
+	/** Maps each hot prefix searched so far to the summed postings of every word starting with it. */
+	private final ConcurrentHashMap<String, Postings> aggregates;
+
+	/**
+	 * Compacts the words and postings of an index into flat arrays.
+	 *
+	 * @param index the words and their postings, in sorted order
+	 * @throws ArithmeticException if the index holds more postings or positions
+	 *   than can be stored in a single array
+	 */
+	public FrozenIndex(Map<String, ? extends Postings> index) {
+		int postingCount = 0;
+		int positionCount = 0;
+
+		for (Postings postings : index.values()) {
+			postingCount = Math.addExact(postingCount, postings.size());
+
+			for (int i = 0; i < postings.size(); i++) {
+				positionCount = Math.addExact(positionCount, postings.frequency(i));
+			}
+		}
+
+		String[] words = new String[index.size()];
+		int[] wordStarts = new int[index.size() + 1];
+		int[] documents = new int[postingCount];
+		int[] positionStarts = new int[postingCount + 1];
+		int[] positions = new int[positionCount];
+
+		int word = 0;
+		int posting = 0;
+		int position = 0;
+
+		for (var entry : index.entrySet()) {
+			Postings postings = entry.getValue();
+			words[word] = entry.getKey();
+			wordStarts[word++] = posting;
+
+			for (int i = 0; i < postings.size(); i++) {
+				documents[posting] = postings.document(i);
+				positionStarts[posting++] = position;
+
+				var iterator = postings.positions(i).iterator();
+				while (iterator.hasNext()) {
+					positions[position++] = iterator.nextInt();
+				}
+			}
+		}
+
+		wordStarts[word] = posting;
+		positionStarts[posting] = position;
+
+		this.words = words;
+		this.wordStarts = IntBuffer.wrap(wordStarts);
+		this.documents = IntBuffer.wrap(documents);
+		this.positionStarts = IntBuffer.wrap(positionStarts);
+		this.positions = IntBuffer.wrap(positions);
+		this.aggregates = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Constructs a snapshot from arrays that have already been compacted.
+	 *
+	 * @param words the sorted words
+	 * @param wordStarts the offset of the first posting of each word
+	 * @param documents the document ID of every posting
+	 * @param positionStarts the offset of the first position of each posting
+	 * @param positions the positions of every posting
+	 */
+	private FrozenIndex(String[] words, IntBuffer wordStarts, IntBuffer documents, IntBuffer positionStarts, IntBuffer positions) {
+		this.words = words;
+		this.wordStarts = wordStarts;
+		this.documents = documents;
+		this.positionStarts = positionStarts;
+		this.positions = positions;
+		this.aggregates = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Writes this snapshot as a segment to the directory, creating the directory if
+	 * necessary and replacing any segment files already in it.
+	 *
+	 * @param directory the directory to write the segment files to
+	 * @throws IOException if an IO error occurs
+	 * @see #open(Path)
+	 */
+	public void write(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(WORDS_FILE))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(words.length);
+			byte[] previous = new byte[0];
+
+			for (String word : words) {
+				byte[] bytes = word.getBytes(UTF_8);
+				int shared = Arrays.mismatch(previous, bytes);
+				shared = shared < 0 ? bytes.length : Math.min(shared, bytes.length);
+
+				writeVarInt(out, shared);
+				writeVarInt(out, bytes.length - shared);
+				out.write(bytes, shared, bytes.length - shared);
+				previous = bytes;
+			}
+		}
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(POSTINGS_FILE))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(wordStarts.limit());
+			out.writeInt(documents.limit());
+			out.writeInt(positionStarts.limit());
+			out.writeInt(positions.limit());
+
+			for (IntBuffer buffer : new IntBuffer[] { wordStarts, documents, positionStarts, positions }) {
+				for (int i = 0; i < buffer.limit(); i++) {
+					out.writeInt(buffer.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a segment written by {@link #write(Path)}. The postings are
+	 * memory-mapped rather than read, so opening takes time proportional only to
+	 * the number of words and pages of postings are loaded as searches touch them.
+	 *
+	 * @param directory the directory containing the segment files
+	 * @return a snapshot backed by the mapped segment files
+	 * @throws IOException if an IO error occurs or the files are not a segment
+	 */
+	public static FrozenIndex open(Path directory) throws IOException {
+		Path wordsFile = directory.resolve(WORDS_FILE);
+		Path postingsFile = directory.resolve(POSTINGS_FILE);
+		String[] words;
+
+		try (FileChannel channel = FileChannel.open(wordsFile, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			checkMagic(buffer, wordsFile);
+			words = new String[buffer.getInt()];
+			byte[] bytes = new byte[64];
+
+			for (int i = 0; i < words.length; i++) {
+				int shared = readVarInt(buffer);
+				int length = shared + readVarInt(buffer);
+
+				if (length > bytes.length) {
+					bytes = Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+				}
+
+				buffer.get(bytes, shared, length - shared);
+				words[i] = new String(bytes, 0, length, UTF_8);
+			}
+		}
+
+		try (FileChannel channel = FileChannel.open(postingsFile, StandardOpenOption.READ)) {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Integer.BYTES * 5);
+			checkMagic(header, postingsFile);
+
+			IntBuffer[] arrays = new IntBuffer[4];
+			long offset = header.capacity();
+
+			for (int i = 0; i < arrays.length; i++) {
+				long length = (long) header.getInt() * Integer.BYTES;
+				arrays[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).asIntBuffer();
+				offset += length;
+			}
+
+			if (arrays[0].limit() != words.length + 1) {
+				throw new IOException("Segment files do not match: " + directory);
+			}
+
+			return new FrozenIndex(words, arrays[0], arrays[1], arrays[2], arrays[3]);
+		}
+	}
+
+	/**
+	 * Reads the magic number at the start of a segment file.
+	 *
+	 * @param buffer the buffer positioned at the start of the file
+	 * @param file the file being read
+	 * @throws IOException if the file is not a segment file
+	 */
+	static void checkMagic(ByteBuffer buffer, Path file) throws IOException {
+		if (buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+			throw new IOException("Not an index segment file: " + file);
+		}
+	}
+
+	/**
+	 * Writes the magic number at the start of a segment file.
+	 *
+	 * @param out the stream positioned at the start of the file
+	 * @throws IOException if an IO error occurs
+	 */
+	static void writeMagic(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+	}
+
+	/**
+	 * Writes a non-negative integer using 7 bits per byte, with the high bit of
+	 * each byte set if more bytes follow.
+	 *
+	 * @param out the stream to write to
+	 * @param value the non-negative integer to write
+	 * @throws IOException if an IO error occurs
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an integer written by {@link #writeVarInt(DataOutputStream, int)}.
+	 *
+	 * @param buffer the buffer positioned at the integer
+	 * @return the integer read
+	 */
+	private static int readVarInt(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte next;
+
+		do {
+			next = buffer.get();
+			value |= (next & 0x7F) << shift;
+			shift += 7;
+		} while ((next & 0x80) != 0);
+
+		return value;
+	}
+
+	/**
+	 * Returns the number of words in this snapshot.
+	 *
+	 * @return the number of words
+	 */
+	public int numWords() {
+		return words.length;
+	}
+
+	/**
+	 * Returns the word stored at the index.
+	 *
+	 * @param index the index of the word, between 0 and {@link #numWords()}
+	 * @return the word at that index
+	 */
+	public String word(int index) {
+		return words[index];
+	}
+
+	/**
+	 * Finds the index of the word.
+	 *
+	 * @param word the word to find
+	 * @return the index of the word if found, otherwise
+	 *   {@code -(insertion point) - 1} as returned by a binary search
+	 */
+	public int find(String word) {
+		return Arrays.binarySearch(words, word);
+	}
+
+	/**
+	 * Returns the index of the first word that is greater than or equal to the
+	 * word provided, which is where words starting with that prefix begin.
+	 *
+	 * @param prefix the prefix to find
+	 * @return the index of the first word not less than the prefix
+	 */
+	public int ceiling(String prefix) {
+		int index = find(prefix);
+		return index >= 0 ? index : -(index + 1);
+	}
+
+	/**
+	 * Returns the index after the last word starting with the prefix, searching
+	 * from the first such word. Words starting with a prefix are contiguous in
+	 * the sorted array, so this is a binary search rather than a scan.
+	 *
+	 * @param prefix the prefix to find
+	 * @param start the index of the first word not less than the prefix
+	 * @return the index of the first word after start not starting with the prefix
+	 * @see #ceiling(String)
+	 */
+	public int prefixEnd(String prefix, int start) {
+		int low = start;
+		int high = words.length;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (words[middle].startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Finds the postings of every word starting with the prefix. A short prefix
+	 * matching many words returns a single aggregate list instead, whose
+	 * frequencies are the sums of the frequencies of every matching word. The
+	 * positions of aggregate postings are merged from the matching words each
+	 * time they are requested, so searches should avoid them.
+	 *
+	 * @param prefix the prefix to find
+	 * @return the postings of the matching words, or their aggregate postings
+	 */
+	public List<Postings> prefixMatches(String prefix) {
+		return prefixMatches(prefix, true);
+	}
+
+	/**
+	 * Finds the postings of every word starting with the prefix, only returning
+	 * aggregate postings for a short prefix matching many words if allowed.
+	 * Scorers that weigh each word separately need the postings of every word.
+	 *
+	 * @param prefix the prefix to find
+	 * @param aggregate true if aggregate postings may be returned
+	 * @return the postings of the matching words, or their aggregate postings
+	 * @see Scorer#isAdditive()
+	 */
+	public List<Postings> prefixMatches(String prefix, boolean aggregate) {
+		int start = ceiling(prefix);
+		int end = prefixEnd(prefix, start);
+
+		if (aggregate && prefix.length() <= HOT_PREFIX_LENGTH && end - start >= HOT_PREFIX_WORDS) {
+			return List.of(aggregates.computeIfAbsent(prefix, p -> aggregate(start, end)));
+		}
+
+		List<Postings> matches = new ArrayList<>(end - start);
+
+		for (int i = start; i < end; i++) {
+			matches.add(postings(i));
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Sums the postings of a range of words into a single list of documents and
+	 * frequencies.
+	 *
+	 * @param start the index of the first word
+	 * @param end the index after the last word
+	 * @return the aggregate postings of the words
+	 */
+	private Postings aggregate(int start, int end) {
+		int first = wordStarts.get(start);
+		int last = wordStarts.get(end);
+		int maxDocument = -1;
+
+		for (int posting = first; posting < last; posting++) {
+			maxDocument = Math.max(maxDocument, documents.get(posting));
+		}
+
+		int[] frequencies = new int[maxDocument + 1];
+		int count = 0;
+
+		for (int posting = first; posting < last; posting++) {
+			int document = documents.get(posting);
+
+			if (frequencies[document] == 0) {
+				count++;
+			}
+
+			frequencies[document] += positionStarts.get(posting + 1) - positionStarts.get(posting);
+		}
+
+		int[] aggregateDocuments = new int[count];
+		int[] aggregateFrequencies = new int[count];
+		int next = 0;
+
+		for (int document = 0; document < frequencies.length; document++) {
+			if (frequencies[document] > 0) {
+				aggregateDocuments[next] = document;
+				aggregateFrequencies[next++] = frequencies[document];
+			}
+		}
+
+		return new AggregatePostings(start, end, aggregateDocuments, aggregateFrequencies);
+	}
+
+	/**
+	 * Returns the postings of the word stored at the index.
+	 *
+	 * @param index the index of the word, between 0 and {@link #numWords()}
+	 * @return the postings of the word
+	 */
+	public Postings postings(int index) {
+		return new FrozenPostings(wordStarts.get(index), wordStarts.get(index + 1));
+	}
+
+	/**
+	 * Returns the postings of the word.
+	 *
+	 * @param word the word to find
+	 * @return the postings of the word, or {@code null} if the word is not found
+	 */
+	public Postings postings(String word) {
+		int index = find(word);
+		return index >= 0 ? postings(index) : null;
+	}
+
+	/**
+	 * Returns a read-only view of the sorted words in this snapshot.
+	 *
+	 * @return an unmodifiable set of words
+	 */
+	public Set<String> viewWords() {
+		return new AbstractSet<>() {
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String word && find(word) >= 0;
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<>() {
+					/** The index of the next word to return. */
+					private int next = 0;
+
+					@Override
+					public boolean hasNext() {
+						return next < words.length;
+					}
+
+					@Override
+					public String next() {
+						if (next >= words.length) {
+							throw new NoSuchElementException();
+						}
+
+						return words[next++];
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return words.length;
+			}
+		};
+	}
+
+	/**
+	 * The summed postings of every word starting with a prefix. Positions are not
+	 * kept, since partial searches only need documents and frequencies, and are
+	 * instead merged from the postings of the words when requested.
+	 */
+	private class AggregatePostings implements Postings {
+		/** The index of the first word starting with the prefix. */
+		private final int start;
+
+		/** The index after the last word starting with the prefix. */
+		private final int end;
+
+		/** The sorted document IDs. */
+		private final int[] documents;
+
+		/** The summed frequency of every document. */
+		private final int[] frequencies;
+
+		/**
+		 * Constructs aggregate postings from parallel arrays.
+		 *
+		 * @param start the index of the first word starting with the prefix
+		 * @param end the index after the last word starting with the prefix
+		 * @param documents the sorted document IDs
+		 * @param frequencies the summed frequency of every document
+		 */
+		public AggregatePostings(int start, int end, int[] documents, int[] frequencies) {
+			this.start = start;
+			this.end = end;
+			this.documents = documents;
+			this.frequencies = frequencies;
+		}
+
+		@Override
+		public int size() {
+			return documents.length;
+		}
+
+		@Override
+		public int document(int index) {
+			return documents[index];
+		}
+
+		@Override
+		public int frequency(int index) {
+			return frequencies[index];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * The positions of every word starting with the prefix in the document are
+		 * merged into a new list, looking the document up in the postings of each
+		 * word.
+		 */
+		@Override
+		public PositionList positions(int index) {
+			int document = documents[index];
+			int[] merged = new int[frequencies[index]];
+			int next = 0;
+
+			for (int word = start; word < end; word++) {
+				int found = postings(word).find(document);
+
+				if (found >= 0) {
+					int posting = wordStarts.get(word) + found;
+					int from = positionStarts.get(posting);
+					int length = positionStarts.get(posting + 1) - from;
+					FrozenIndex.this.positions.get(from, merged, next, length);
+					next += length;
+				}
+			}
+
+			// each position holds a single word, so the positions of different words never repeat
+			Arrays.sort(merged);
+			return ArrayPositionList.copyOf(IntBuffer.wrap(merged), 0, merged.length);
+		}
+
+		@Override
+		public int find(int document) {
+			return Arrays.binarySearch(documents, document);
+		}
+	}
+
+	/**
+	 * The postings of a single word, stored as a range of the flat posting arrays.
+	 */
+	private class FrozenPostings implements Postings {
+		/** The index of the first posting of the word. */
+		private final int start;
+
+		/** The index after the last posting of the word. */
+		private final int end;
+
+		/**
+		 * Constructs a view of the postings between the indexes provided.
+		 *
+		 * @param start the index of the first posting
+		 * @param end the index after the last posting
+		 */
+		public FrozenPostings(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int size() {
+			return end - start;
+		}
+
+		@Override
+		public int document(int index) {
+			return documents.get(offset(index));
+		}
+
+		@Override
+		public int frequency(int index) {
+			int posting = offset(index);
+			return positionStarts.get(posting + 1) - positionStarts.get(posting);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 *
+		 * The positions are copied out of the snapshot into a new list.
+		 */
+		@Override
+		public PositionList positions(int index) {
+			int posting = offset(index);
+			return ArrayPositionList.copyOf(positions, positionStarts.get(posting), positionStarts.get(posting + 1));
+		}
+
+		@Override
+		public int find(int document) {
+			int low = start;
+			int high = end - 1;
+
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int value = documents.get(middle);
+
+				if (value < document) {
+					low = middle + 1;
+				}
+				else if (value > document) {
+					high = middle - 1;
+				}
+				else {
+					return middle - start;
+				}
+			}
+
+			return -(low - start + 1);
+		}
+
+		/**
+		 * Converts an index of these postings to an index of the flat arrays.
+		 *
+		 * @param index the index of the posting, between 0 and {@link #size()}
+		 * @return the index of the posting in the flat arrays
+		 * @throws IndexOutOfBoundsException if the index is out of range
+		 */
+		private int offset(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException(index);
+			}
+
+			return start + index;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Updates an index persisted as a segment with a {@link Manifest} instead of
+ * rebuilding it from every file. The previous index is loaded from the segment
+ * directory, files whose size and modification time are unchanged are skipped,
+ * files that were only touched are recognized by their content hash, and only
+ * new or changed files are parsed again. Files that no longer exist are removed
+ * from the index.
+ */
+public class IncrementalIndexer {
+	/**
+	 * Loads the index persisted in the segment directory into the index provided
+	 * and brings it up to date with the files at the input path. If the directory
+	 * has no manifest, every file is indexed from scratch.
+	 *
+	 * <p>
+	 * Changed files are indexed with the work queue if one is provided and the
+	 * index is thread-safe, or on the calling thread otherwise.
+	 *
+	 * @param input the path to the directory or file to index
+	 * @param index the empty index to load and update
+	 * @param directory the segment directory of the persisted index
+	 * @param workQueue the work queue to index changed files with, or null
+	 * @return the manifest describing every file now in the index
+	 * @throws IOException if an IO error occurs reading the segment or listing
+	 *   the input directory
+	 * @see #save(InvertedIndex, Manifest, Path)
+	 */
+	public static Manifest update(Path input, InvertedIndex index, Path directory, TaskQueue workQueue) throws IOException {
+		Manifest previous = new Manifest();
+
+		if (Manifest.exists(directory)) {
+			previous = Manifest.read(directory);
+
+			// the segment is frozen once opened, so copy it into the index being updated
+			InvertedIndex persisted = new InvertedIndex(index.isCompressed());
+			persisted.openSegment(directory);
+			index.combine(persisted);
+		}
+
+		List<Path> files = new ArrayList<>();
+
+		if (Files.isDirectory(input)) {
+			MultiThreadedInvertedIndexBuilder.listFiles(input, files);
+		} else if (InvertedIndexBuilder.isTextFile(input)) {
+			files.add(input);
+		}
+
+		Manifest current = new Manifest();
+		Set<String> found = new HashSet<>();
+		List<String> removed = new ArrayList<>();
+		Map<Path, Manifest.Entry> changed = new LinkedHashMap<>();
+
+		for (Path file : files) {
+			String location = file.toString();
+			found.add(location);
+
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+				Manifest.Entry before = previous.get(location);
+
+				if (before != null && before.matches(attributes)) {
+					current.put(location, before);
+					continue;
+				}
+
+				Manifest.Entry after = Manifest.describe(file, attributes);
+
+				if (before != null && before.sameContent(after)) {
+					current.put(location, after);
+					continue;
+				}
+
+				removed.add(location);
+				changed.put(file, after);
+			} catch (IOException e) {
+				System.err.println("Error processing file: " + file);
+			}
+		}
+
+		for (String location : previous.viewLocations()) {
+			if (!found.contains(location)) {
+				removed.add(location);
+			}
+		}
+
+		// every stale document is removed in one pass before the changed files are indexed again
+		index.removeDocuments(removed);
+
+		// a file is only recorded once it is indexed, so a file that fails is indexed again by the next update
+		Map<String, Manifest.Entry> indexed = new ConcurrentHashMap<>();
+
+		for (var entry : changed.entrySet()) {
+			indexFile(entry.getKey(), entry.getValue(), index, workQueue, indexed);
+		}
+
+		if (workQueue != null) {
+			workQueue.finish();
+		}
+
+		indexed.forEach(current::put);
+		return current;
+	}
+
+	/**
+	 * Indexes a single new or changed file, and records its entry once it is indexed.
+	 *
+	 * @param file the file to index
+	 * @param entry the manifest entry describing the file
+	 * @param index the index to add the file to
+	 * @param workQueue the work queue to index the file with, or null
+	 * @param indexed the entries of the files indexed so far
+	 */
+	private static void indexFile(Path file, Manifest.Entry entry, InvertedIndex index, TaskQueue workQueue,
+			Map<String, Manifest.Entry> indexed) {
+		if (workQueue != null && index instanceof MultiThreadedInvertedIndex threadSafe) {
+			workQueue.execute(() -> {
+				try {
+					MultiThreadedInvertedIndexBuilder.processFile(file, threadSafe);
+					indexed.put(file.toString(), entry);
+				} catch (IOException e) {
+					System.err.println("Error processing file: " + file);
+				}
+			});
+			return;
+		}
+
+		try {
+			InvertedIndexBuilder.processFile(file, index);
+			indexed.put(file.toString(), entry);
+		} catch (IOException e) {
+			System.err.println("Error processing file: " + file);
+		}
+	}
+
+	/**
+	 * Writes the index as a segment and the manifest describing its files to the
+	 * segment directory, so the next update can start from them.
+	 *
+	 * @param index the index to persist
+	 * @param manifest the manifest returned by the update
+	 * @param directory the segment directory to write to
+	 * @throws IOException if an IO error occurs
+	 * @see InvertedIndex#writeSegment(Path)
+	 */
+	public static void save(InvertedIndex index, Manifest manifest, Path directory) throws IOException {
+		index.writeSegment(directory);
+		manifest.write(directory);
+	}
+
+	/** Prevent instantiating this class of static methods. */
+	private IncrementalIndexer() {
+	}
+}
@@ -0,0 +1,330 @@
+package edu.usfca.cs272;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps a live {@link MultiThreadedInvertedIndex} up to date with a directory tree while it keeps serving
+ * searches. Every directory of the tree is registered with a {@link WatchService}, and the paths of create,
+ * modify, and delete events are collected into a pending batch. A path that changes several times before the
+ * batch is applied is only recorded once, so a burst of writes to the same file re-indexes it once.
+ *
+ * <p>
+ * The batch is applied once no events arrive for the debounce delay, or once the oldest pending event is
+ * {@link #MAX_DELAY_FACTOR} debounce delays old, so a file that is written continuously still gets indexed.
+ * The new contents of every changed file are indexed into a separate index first, and then swapped into the
+ * live index with {@link InvertedIndex#replaceDocuments(java.util.Collection, InvertedIndex)}, so searches
+ * only wait for the swap and never see half of a batch.
+ *
+ * <p>
+ * The root may also be a single file, in which case only its parent directory is registered and only events
+ * for that file are collected.
+ *
+ * <p>
+ * Changed files are indexed on a work queue owned by the watcher, so applying a batch never waits for tasks
+ * queued by anything else, and nothing else waits for a batch.
+ *
+ * <p>
+ * Run the watcher on its own thread and {@link #close()} it to stop watching.
+ */
+public class IndexWatcher implements Runnable, AutoCloseable {
+	/** The default number of milliseconds without events before a batch is applied. */
+	public static final long DEFAULT_DEBOUNCE = 250;
+
+	/** The number of debounce delays after which a batch is applied even while events keep arriving. */
+	public static final int MAX_DELAY_FACTOR = 8;
+
+	/** The log4j2 logger. */
+	private static final Logger log = LogManager.getLogger();
+
+	/** The root of the directory tree being watched. */
+	private final Path root;
+
+	/** Whether the root is a single file watched through its parent directory. */
+	private final boolean single;
+
+	/** The live index kept up to date. */
+	private final MultiThreadedInvertedIndex index;
+
+	/** The number of threads to index changed files with, or 1 to index them on the watcher thread. */
+	private final int threads;
+
+	/** The number of milliseconds without events before a batch is applied. */
+	private final long debounce;
+
+	/** The watch service every directory is registered with. */
+	private final WatchService watcher;
+
+	/** Maps the key of every registered directory to the directory. */
+	private final Map<WatchKey, Path> directories;
+
+	/** The paths changed since the last batch, in the order they first changed. */
+	private final Set<Path> pending;
+
+	/** The number of events received. */
+	private final LongAdder events;
+
+	/** The number of batches applied. */
+	private final LongAdder batches;
+
+	/** The number of files indexed again or removed. */
+	private final LongAdder files;
+
+	/**
+	 * Registers every directory of the tree with a new watch service. Events that happen after this constructor
+	 * returns are applied once {@link #run()} is called, so the initial index can be built in between without
+	 * missing any changes.
+	 *
+	 * @param root the root of the directory tree to watch
+	 * @param index the live index to keep up to date
+	 * @param threads the number of threads to index changed files with, or 1 to index them on the watcher thread
+	 * @param debounce the number of milliseconds without events before a batch is applied
+	 * @throws IOException if an IO error occurs registering the directories
+	 */
+	public IndexWatcher(Path root, MultiThreadedInvertedIndex index, int threads, long debounce) throws IOException {
+		this.root = root;
+		this.index = index;
+		this.threads = Math.max(threads, 1);
+		this.debounce = debounce;
+		this.watcher = root.getFileSystem().newWatchService();
+		this.directories = new HashMap<>();
+		this.pending = new LinkedHashSet<>();
+		this.events = new LongAdder();
+		this.batches = new LongAdder();
+		this.files = new LongAdder();
+
+		this.single = !Files.isDirectory(root);
+
+		if (!single) {
+			registerTree(root);
+		} else {
+			// a relative file without a parent is in the working directory, which the empty path resolves against
+			Path parent = root.getParent() == null ? Path.of("") : root.getParent();
+			directories.put(parent.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), parent);
+		}
+	}
+
+	/**
+	 * Registers a directory and every directory below it.
+	 *
+	 * @param directory the directory to register
+	 * @throws IOException if an IO error occurs
+	 */
+	private void registerTree(Path directory) throws IOException {
+		try (Stream<Path> tree = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) tree.filter(Files::isDirectory)::iterator) {
+				directories.put(path.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), path);
+			}
+		}
+	}
+
+	/**
+	 * Collects events into batches and applies them until the watcher is closed.
+	 */
+	@Override
+	public void run() {
+		long oldest = 0;
+		TaskQueue workQueue = threads > 1 ? new WorkQueue(threads) : null;
+
+		try {
+			while (true) {
+				WatchKey key;
+
+				if (pending.isEmpty()) {
+					key = watcher.take();
+					oldest = System.nanoTime();
+				} else {
+					long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+					key = waited < debounce * MAX_DELAY_FACTOR ? watcher.poll(debounce, TimeUnit.MILLISECONDS) : null;
+				}
+
+				if (key == null) {
+					applyBatch(workQueue);
+					continue;
+				}
+
+				collect(key);
+			}
+		} catch (ClosedWatchServiceException e) {
+			log.debug("Stopped watching {}.", root);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (workQueue != null) {
+				workQueue.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Adds the paths of the events of a key to the pending batch and resets the key.
+	 *
+	 * @param key the signalled key
+	 */
+	private void collect(WatchKey key) {
+		Path directory = directories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			events.increment();
+
+			if (event.kind() == OVERFLOW) {
+				// events were lost, so check the whole tree again
+				pending.add(root);
+				continue;
+			}
+
+			Path path = directory.resolve((Path) event.context());
+
+			// only the root itself matters when a single file is watched through its parent directory
+			if (single && !path.equals(root)) {
+				continue;
+			}
+
+			// a directory is modified whenever its entries change, which is reported for the entries themselves
+			if (event.kind() == ENTRY_MODIFY && Files.isDirectory(path)) {
+				continue;
+			}
+
+			pending.add(path);
+		}
+
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	/**
+	 * Indexes the new contents of every pending path into a separate index and swaps them into the live index.
+	 *
+	 * @param workQueue the work queue of the watcher, or null to index on the watcher thread
+	 */
+	private void applyBatch(TaskQueue workQueue) {
+		Set<String> removed = new LinkedHashSet<>();
+		List<Path> changed = new ArrayList<>();
+
+		for (Path path : pending) {
+			try {
+				if (Files.isDirectory(path)) {
+					if (!path.equals(root)) {
+						registerTree(path);
+					}
+
+					List<Path> found = new ArrayList<>();
+					MultiThreadedInvertedIndexBuilder.listFiles(path, found);
+					removed.addAll(indexedBelow(path));
+					changed.addAll(found);
+				} else if (Files.isRegularFile(path) && InvertedIndexBuilder.isTextFile(path)) {
+					changed.add(path);
+				} else {
+					// a deleted file, or a deleted directory and every file that was in it
+					removed.add(path.toString());
+					removed.addAll(indexedBelow(path));
+				}
+			} catch (IOException e) {
+				System.err.println("Error processing watched path: " + path);
+			}
+		}
+
+		pending.clear();
+
+		MultiThreadedInvertedIndex batch = new MultiThreadedInvertedIndex(index.isCompressed());
+
+		for (Path file : changed) {
+			removed.add(file.toString());
+
+			if (workQueue != null) {
+				workQueue.execute(new MultiThreadedInvertedIndexBuilder.FileTask(file, batch));
+			} else {
+				try {
+					MultiThreadedInvertedIndexBuilder.processFile(file, batch);
+				} catch (IOException e) {
+					System.err.println("Error processing file: " + file);
+				}
+			}
+		}
+
+		if (workQueue != null) {
+			workQueue.finish();
+		}
+
+		index.replaceDocuments(removed, batch);
+		batches.increment();
+		files.add(removed.size());
+		log.debug("Applied a batch of {} files from {}.", removed.size(), root);
+	}
+
+	/**
+	 * Returns the locations of the documents in the index that are below a directory.
+	 *
+	 * @param directory the directory
+	 * @return the locations of the documents below the directory
+	 */
+	private List<String> indexedBelow(Path directory) {
+		String prefix = directory.toString() + directory.getFileSystem().getSeparator();
+		return index.getWordCount().keySet().stream().filter(location -> location.startsWith(prefix)).toList();
+	}
+
+	/**
+	 * Returns the number of events received.
+	 *
+	 * @return the number of events
+	 */
+	public long getEvents() {
+		return events.sum();
+	}
+
+	/**
+	 * Returns the number of batches applied.
+	 *
+	 * @return the number of batches
+	 */
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	/**
+	 * Returns the number of files indexed again or removed, summed across batches.
+	 *
+	 * @return the number of files
+	 */
+	public long getFiles() {
+		return files.sum();
+	}
+
+	/**
+	 * Stops watching. A batch still pending is discarded.
+	 *
+	 * @throws IOException if an IO error occurs closing the watch service
+	 */
+	@Override
+	public void close() throws IOException {
+		watcher.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Events: %d, Batches: %d, Files: %d", getEvents(), getBatches(), getFiles());
+	}
+}
@@ -2,11 +2,17 @@ package edu.usfca.cs272;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -14,29 +20,241 @@ import java.util.TreeSet;
 /**
  * Represents an inverted index for indexing documents and their words.
  * An inverted index associates each word with a list of its occurrences in various documents.
- * This implementation uses a nested TreeMap structure to store
- * word occurrences and document word counts efficiently, allowing for fast retrieval and sorted order of words.
+ * This implementation uses a TreeMap of words to postings keyed by integer document IDs to store
+ * word occurrences efficiently, allowing for fast retrieval and sorted order of words. Document IDs are
+ * resolved back to locations only when the index or search results are viewed or written.
  */
 public class InvertedIndex {
 	/**
-	 * Stores the inverted index. Each word is mapped to another TreeMap, which in turn maps document identifiers
-	 * to a TreeSet of integers representing the positions of the word in that document.
+	 * The relative margin by which the score bound of a document must fall below the worst of the best results
+	 * before it is skipped, so rounding in the bounds never skips a document that would have been kept.
 	 */
-	private final TreeMap<String, TreeMap<String, TreeSet<Integer>>> index;
+	private static final double PRUNING_MARGIN = 1e-9;
 
+	/**
+	 * Stores the inverted index. Each word is mapped to its {@link PostingsList}, which in turn maps document IDs
+	 * to a {@link PositionList} of primitive integers representing the positions of the word in that document.
+	 */
+	private final TreeMap<String, PostingsList> index;
+
+
+	/**
+	 * Assigns each document location a dense integer ID and stores the count of words in each document.
+	 */
+	private final DocumentTable documents;
+
+	/**
+	 * Whether positions are stored as compressed gaps instead of arrays of integers.
+	 */
+	private final boolean compressed;
 
 	/**
-	 * Stores the count of words in each document. Maps document identifiers to an integer count of words.
+	 * A read-only snapshot of the words and postings, or null until this index is frozen.
 	 */
-	private final TreeMap<String, Integer> counts;
+	private volatile FrozenIndex frozen;
 
 	/**
 	 * Constructs an empty InvertedIndex. Initializes the underlying data structures for storing the inverted index
 	 * and word counts.
 	 */
 	public InvertedIndex() {
-		index = new TreeMap<>();
-		counts = new TreeMap<>();
+		this(false);
+	}
+
+	/**
+	 * Constructs an empty InvertedIndex, optionally storing positions as delta encoded variable-byte integers.
+	 * Compressed positions use roughly a quarter of the memory of uncompressed positions and are decoded
+	 * lazily when positions are viewed or written.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 * @see PositionList
+	 */
+	public InvertedIndex(boolean compressed) {
+		this(compressed, new DocumentTable());
+	}
+
+	/**
+	 * Constructs an empty InvertedIndex that assigns document IDs from the document table provided, so that
+	 * several indexes can share the same document IDs. Access to a shared table must be synchronized by the
+	 * caller.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 * @param documents the document table to use
+	 */
+	InvertedIndex(boolean compressed, DocumentTable documents) {
+		this.index = new TreeMap<>();
+		this.documents = documents;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Determines whether this index stores positions as compressed gaps.
+	 *
+	 * @return true if positions are compressed
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
+	/**
+	 * Returns the table assigning document IDs in this index.
+	 *
+	 * @return the document table
+	 */
+	DocumentTable documents() {
+		return documents;
+	}
+
+	/**
+	 * Compacts the words and postings of this index into the sorted flat arrays of a {@link FrozenIndex} and
+	 * releases the tree structure used while building. A frozen index can no longer be modified, but it answers
+	 * every query faster and may be read by any number of threads without locking. Does nothing if this index
+	 * is already frozen.
+	 *
+	 * @see FrozenIndex
+	 */
+	public void freeze() {
+		if (frozen == null) {
+			frozen = new FrozenIndex(index);
+			index.clear();
+		}
+	}
+
+	/**
+	 * Writes the words, postings, and documents of this index as a binary segment to the directory. The segment
+	 * holds a term dictionary file, a postings file, and a document table file, and can be opened by another
+	 * process with {@link #openSegment(Path)} without parsing any text. This index is not frozen by writing it.
+	 *
+	 * @param directory the directory to write the segment files to
+	 * @throws IOException if an IO error occurs
+	 * @see FrozenIndex#write(Path)
+	 * @see DocumentTable#write(Path)
+	 */
+	public void writeSegment(Path directory) throws IOException {
+		FrozenIndex snapshot = frozen;
+		(snapshot != null ? snapshot : new FrozenIndex(index)).write(directory);
+		documents.write(directory);
+	}
+
+	/**
+	 * Loads a binary segment written by {@link #writeSegment(Path)} into this empty index, which is left frozen.
+	 * The postings are memory-mapped instead of read into the heap, so a large index is ready for searching as
+	 * soon as its term dictionary and document table are read.
+	 *
+	 * @param directory the directory containing the segment files
+	 * @throws IOException if an IO error occurs or the files are not a segment
+	 * @throws IllegalStateException if this index is frozen or not empty
+	 * @see FrozenIndex#open(Path)
+	 */
+	public void openSegment(Path directory) throws IOException {
+		checkNotFrozen();
+
+		if (!index.isEmpty() || documents.size() != 0) {
+			throw new IllegalStateException("Cannot open a segment into an index that is not empty.");
+		}
+
+		FrozenIndex snapshot = FrozenIndex.open(directory);
+		documents.read(directory);
+		frozen = snapshot;
+	}
+
+	/**
+	 * Determines whether this index has been frozen.
+	 *
+	 * @return true if this index is frozen and can no longer be modified
+	 * @see #freeze()
+	 */
+	public boolean isFrozen() {
+		return frozen != null;
+	}
+
+	/**
+	 * Returns a number that changes whenever the words, postings, or word counts of this index change, so
+	 * results computed from this index can tell whether they are still current.
+	 *
+	 * @return the version of the contents of this index
+	 * @see DocumentTable#getModifications()
+	 */
+	public long version() {
+		return documents.getModifications();
+	}
+
+	/**
+	 * Ensures this index can still be modified.
+	 *
+	 * @throws IllegalStateException if this index is frozen
+	 */
+	private void checkNotFrozen() {
+		if (frozen != null) {
+			throw new IllegalStateException("Cannot modify a frozen index.");
+		}
+	}
+
+	/**
+	 * Returns the postings of a word from the snapshot if this index is frozen, or from the tree otherwise.
+	 *
+	 * @param word the word to find
+	 * @return the postings of the word, or {@code null} if the word is not in this index
+	 */
+	Postings getPostings(String word) {
+		FrozenIndex snapshot = frozen;
+		return snapshot != null ? snapshot.postings(word) : index.get(word);
+	}
+
+	/**
+	 * Returns the words of the snapshot if this index is frozen, or of the tree otherwise.
+	 *
+	 * @return a read-only view of the sorted words in this index
+	 */
+	Set<String> words() {
+		FrozenIndex snapshot = frozen;
+		return snapshot != null ? snapshot.viewWords() : Collections.unmodifiableSet(index.keySet());
+	}
+
+	/**
+	 * Returns the document ID of a location, assigning a new ID if the location has not been added before.
+	 * Builders call this once per file and then add words by document ID.
+	 *
+	 * @param location the file to add
+	 * @return the document ID of the location
+	 * @throws IllegalStateException if this index is frozen
+	 */
+	public int addDocument(String location) {
+		checkNotFrozen();
+		return documents.add(location);
+	}
+
+	/**
+	 * Adds a word, its document ID, and position within that document to the inverted index.
+	 * If the word does not exist in the index, it creates a new entry for it.
+	 *
+	 * @param word the word to add to the index
+	 * @param document the document ID returned by {@link #addDocument(String)}
+	 * @param position the position of the word within the file
+	 * @throws IllegalStateException if this index is frozen
+	 */
+	public void add(String word, int document, int position) {
+		checkNotFrozen();
+		addPosting(word, document, position);
+		documents.updateCount(document, position);
+	}
+
+	/**
+	 * Adds a position of a word to the postings without updating the word count of the document.
+	 *
+	 * @param word the word to add to the index
+	 * @param document the document ID
+	 * @param position the position of the word within the file
+	 */
+	void addPosting(String word, int document, int position) {
+		PostingsList postings = index.get(word);
+		// If not, create a new postings list for the word and add it to the inverted index
+		if (postings == null) {
+			postings = new PostingsList(compressed);
+			index.put(word, postings);
+		}
+
+		postings.add(document, position);
 	}
 
 	/**
@@ -50,27 +268,7 @@ public class InvertedIndex {
 	 * @param position the position of the word within the file
 	 */
 	public void add(String word, String location, int position) {
-		// Check if the inverted index map already has the word
-		TreeMap<String, TreeSet<Integer>> locations = index.get(word);
-		// If not, create a new TreeMap for the word and add it to the inverted index
-		if (locations == null) {
-			locations = new TreeMap<>();
-			index.put(word, locations);
-		}
-
-		TreeSet<Integer> positions = locations.get(location);
-		// If the location is not present, create a new TreeSet for positions
-		if (positions == null) {
-			positions = new TreeSet<>();
-			locations.put(location, positions);
-		}
-
-		positions.add(position);
-
-		Integer currentMax = counts.get(location);
-		if (currentMax == null || position > currentMax) {
-			counts.put(location, position);
-		}
+		add(word, addDocument(location), position);
 	}
 
 	/**
@@ -81,61 +279,243 @@ public class InvertedIndex {
 	 * @param position the starting position for the first word in the list
 	 */
 	public void addAll(ArrayList<String> words, String location, int position) {
+		int document = addDocument(location);
 		for (String word : words) {
-			add(word, location, position++);
+			add(word, document, position++);
 		}
 	}
 
 
 	/**
-	 * Merges another inverted index into this index.
+	 * Merges another inverted index into this index. The documents of the other index are assigned
+	 * document IDs in this index before their postings are merged.
 	 *
 	 * @param other the inverted index to merge into this one
+	 * @throws IllegalStateException if this index is frozen
 	 */
 	public void combine(InvertedIndex other) {
-		for (var otherEntry : other.index.entrySet()) {
-			var word = otherEntry.getKey();
-			var otherLocations = otherEntry.getValue();
-			var thisLocations = this.index.get(word);
-
-			if (thisLocations == null) {
-				this.index.put(word, otherLocations);
-			}
-			else {
-				for (var otherLocationEntry : otherLocations.entrySet()) {
-					String location = otherLocationEntry.getKey();
-					var otherPositions = otherLocationEntry.getValue();
-					var thisPositions = thisLocations.get(location);
-
-					if (thisPositions == null) {
-						thisLocations.put(location, otherPositions);
-					} else {
-						thisPositions.addAll(otherPositions);
-					}
+		checkNotFrozen();
+		int[] remap = addDocuments(other);
+
+		for (String word : other.words()) {
+			addPostings(word, other.getPostings(word), remap);
+		}
+	}
+
+	/**
+	 * Removes a document from the index. Every position of every word in the document is removed, words left
+	 * without any documents are removed, and the word count of the document is reset so it no longer appears in
+	 * the word counts. The document keeps its ID, so adding it again later reuses the same ID.
+	 *
+	 * @param location the location of the document to remove
+	 * @return true if the index had any words or a word count for the document
+	 * @throws IllegalStateException if this index is frozen
+	 */
+	public boolean removeDocument(String location) {
+		checkNotFrozen();
+		int document = documents.getId(location);
+
+		if (document < 0) {
+			return false;
+		}
+
+		BitSet removed = new BitSet();
+		removed.set(document);
+
+		boolean changed = removePostings(removed) || documents.getCount(document) > 0;
+		documents.resetCount(document);
+		return changed;
+	}
+
+	/**
+	 * Removes a batch of documents from the index like {@link #removeDocument(String)}, but walks the words of
+	 * the index only once for the whole batch instead of once for each document.
+	 *
+	 * @param locations the locations of the documents to remove
+	 * @throws IllegalStateException if this index is frozen
+	 */
+	public void removeDocuments(Collection<String> locations) {
+		checkNotFrozen();
+		BitSet removed = documentIds(locations);
+
+		if (removed.isEmpty()) {
+			return;
+		}
+
+		removePostings(removed);
+		resetCounts(removed);
+	}
+
+	/**
+	 * Returns the IDs of the documents at the locations provided that are in the document table.
+	 *
+	 * @param locations the locations of the documents
+	 * @return the set of document IDs
+	 */
+	BitSet documentIds(Collection<String> locations) {
+		BitSet ids = new BitSet(documents.size());
+
+		for (String location : locations) {
+			int document = documents.getId(location);
+
+			if (document >= 0) {
+				ids.set(document);
+			}
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Resets the word count of every document in the set provided.
+	 *
+	 * @param removed the document IDs to reset
+	 */
+	void resetCounts(BitSet removed) {
+		for (int document = removed.nextSetBit(0); document >= 0; document = removed.nextSetBit(document + 1)) {
+			documents.resetCount(document);
+		}
+	}
+
+	/**
+	 * Replaces a batch of documents at once. Every document provided is removed, and then another index holding
+	 * the new contents of the documents that still exist is merged into this index. Subclasses that are
+	 * thread-safe apply the whole batch while holding their write locks, so readers see either every change in
+	 * the batch or none of them.
+	 *
+	 * @param locations the locations of the documents to remove
+	 * @param other the inverted index holding the new contents of the documents
+	 * @throws IllegalStateException if this index is frozen
+	 * @see #removeDocuments(Collection)
+	 * @see #combine(InvertedIndex)
+	 */
+	public void replaceDocuments(Collection<String> locations, InvertedIndex other) {
+		checkNotFrozen();
+		removeDocuments(locations);
+		combine(other);
+	}
+
+	/**
+	 * Removes the postings of a set of documents from every word in one pass over the words, removing any words
+	 * left without documents. Does not change the word counts of the documents.
+	 *
+	 * @param ids the document IDs to remove
+	 * @return true if any postings were removed
+	 */
+	boolean removePostings(BitSet ids) {
+		boolean removed = false;
+		var iterator = index.values().iterator();
+
+		while (iterator.hasNext()) {
+			PostingsList postings = iterator.next();
+
+			if (postings.removeAll(ids)) {
+				removed = true;
+
+				if (postings.size() == 0) {
+					iterator.remove();
 				}
 			}
 		}
-		for (var otherCountEntry : other.counts.entrySet()) {
-			String location = otherCountEntry.getKey();
-			Integer otherCount = otherCountEntry.getValue();
-			Integer thisCount = this.counts.get(location);
 
-			if (thisCount == null || otherCount > thisCount) {
-				this.counts.put(location, otherCount);
+		return removed;
+	}
+
+	/**
+	 * Merges another inverted index that holds a later part of the same documents into this index, shifting
+	 * every position of the other index by the offset provided. Word counts are raised to the shifted counts of
+	 * the other index. This index must not be shared with other threads.
+	 *
+	 * @param other the inverted index holding the later part of the documents, with positions starting at 1
+	 * @param offset the number of words in the documents before the part held by the other index
+	 * @throws IllegalStateException if this index is frozen
+	 */
+	void append(InvertedIndex other, int offset) {
+		checkNotFrozen();
+		int[] remap = addDocuments(other, offset);
+
+		for (String word : other.words()) {
+			addPostings(word, other.getPostings(word), remap, offset);
+		}
+	}
+
+	/**
+	 * Adds the documents of another index to the document table of this index, raising their word counts to
+	 * the counts in the other index.
+	 *
+	 * @param other the index whose documents are added
+	 * @return maps each document ID of the other index to its document ID in this index
+	 */
+	int[] addDocuments(InvertedIndex other) {
+		return addDocuments(other, 0);
+	}
+
+	/**
+	 * Adds the documents of another index to the document table of this index, raising their word counts to
+	 * the counts in the other index shifted by the offset provided.
+	 *
+	 * @param other the index whose documents are added
+	 * @param offset the amount to add to every word count of the other index
+	 * @return maps each document ID of the other index to its document ID in this index
+	 */
+	private int[] addDocuments(InvertedIndex other, int offset) {
+		int[] remap = new int[other.documents.size()];
+
+		for (int id = 0; id < remap.length; id++) {
+			remap[id] = documents.add(other.documents.getPath(id));
+			int count = other.documents.getCount(id);
+
+			if (count > 0) {
+				documents.updateCount(remap[id], count + offset);
 			}
 		}
+
+		return remap;
+	}
+
+	/**
+	 * Merges the postings of a word from another index into this index.
+	 *
+	 * @param word the word to merge
+	 * @param postings the postings of the word in the other index
+	 * @param remap maps document IDs of the other index to document IDs of this index
+	 * @see #addDocuments(InvertedIndex)
+	 */
+	void addPostings(String word, Postings postings, int[] remap) {
+		addPostings(word, postings, remap, 0);
+	}
+
+	/**
+	 * Merges the postings of a word from another index into this index, shifting every position by the offset
+	 * provided.
+	 *
+	 * @param word the word to merge
+	 * @param postings the postings of the word in the other index
+	 * @param remap maps document IDs of the other index to document IDs of this index
+	 * @param offset the amount to add to every position
+	 */
+	private void addPostings(String word, Postings postings, int[] remap, int offset) {
+		var thisPostings = this.index.get(word);
+
+		if (thisPostings == null) {
+			thisPostings = new PostingsList(compressed);
+			this.index.put(word, thisPostings);
+		}
+
+		thisPostings.addAll(postings, remap, offset);
 	}
 
 
 	/**
 	 * Writes the inverted index to a JSON file.
 	 * This method provides a controlled way to serialize the internal state without exposing it.
+	 * Document IDs are resolved back to locations one word at a time while writing.
 	 *
 	 * @param path The path to the file where the index should be written.
 	 * @throws IOException if theres in error with the input
 	 */
 	public void writeIndex(Path path) throws IOException{
-		JsonWriter.writeIndex(index, path);
+		JsonWriter.writeIndex(new LocationView(), path);
 	}
 
 
@@ -145,7 +525,7 @@ public class InvertedIndex {
 	 * @return the word count map
 	 */
 	public Map<String, Integer> getWordCount() {
-		return Collections.unmodifiableMap(counts);
+		return documents.viewCounts();
 	}
 
 	/**
@@ -155,7 +535,7 @@ public class InvertedIndex {
 	 */
 	@Override
 	public String toString() {
-		return index.toString();
+		return new LocationView().toString();
 	}
 
 	/**
@@ -164,7 +544,8 @@ public class InvertedIndex {
 	 * @return the number of unique words in the inverted index
 	 */
 	public int numWords() {
-		return index.size();
+		FrozenIndex snapshot = frozen;
+		return snapshot != null ? snapshot.numWords() : index.size();
 	}
 
 	/**
@@ -174,7 +555,7 @@ public class InvertedIndex {
 	 * @return true if the inverted index contains the word, false otherwise
 	 */
 	public boolean hasWord(String word) {
-		return index.containsKey(word);
+		return getPostings(word) != null;
 	}
 
 	/**
@@ -183,7 +564,7 @@ public class InvertedIndex {
 	 * @return an unmodifiable Set of all words in the inverted index.
 	 */
 	public Set<String> viewWords() {
-		return Collections.unmodifiableSet(index.keySet());
+		return words();
 	}
 
 	/**
@@ -194,8 +575,8 @@ public class InvertedIndex {
 	 * @return true if the word has the location, false otherwise
 	 */
 	public boolean hasLocation(String word, String location) {
-		TreeMap<String, TreeSet<Integer>> locations = index.get(word);
-		return locations != null && locations.containsKey(location);
+		Postings postings = getPostings(word);
+		return postings != null && postings.find(documents.getId(location)) >= 0;
 	}
 
 	/**
@@ -205,11 +586,11 @@ public class InvertedIndex {
 	 * @return a Set of strings representing the locations (files) where the word is found
 	 */
 	public Set<String> viewLocations(String word){
-		TreeMap<String, TreeSet<Integer>> locations = index.get(word);
-		if (locations == null) {
+		Postings postings = getPostings(word);
+		if (postings == null) {
 			return Collections.emptySet();
 		}
-		return Collections.unmodifiableSet(locations.keySet());
+		return Collections.unmodifiableSet(locations(postings).keySet());
 	}
 
 	/**
@@ -221,10 +602,10 @@ public class InvertedIndex {
 	 * @return true if the word has the location and position, false otherwise
 	 */
 	public boolean hasPosition(String word, String location, int position) {
-		TreeMap<String, TreeSet<Integer>> locations = index.get(word);
-		if (locations != null) {
-			TreeSet<Integer> positions = locations.get(location);
-			return positions != null && positions.contains(position);
+		Postings postings = getPostings(word);
+		if (postings != null) {
+			int found = postings.find(documents.getId(location));
+			return found >= 0 && postings.positions(found).contains(position);
 		}
 		return false;
 	}
@@ -234,14 +615,14 @@ public class InvertedIndex {
 	 *
 	 * @param word the word to get positions for
 	 * @param location the location (file) to get positions in
-	 * @return a TreeSet of integers representing the positions of the word in the specified location
+	 * @return a sorted set of integers representing the positions of the word in the specified location
 	 */
 	public Set<Integer> viewPositions(String word, String location) {
-		TreeMap<String, TreeSet<Integer>> locations = index.get(word);
-		if (locations != null) {
-			TreeSet<Integer> positions = locations.get(location);
-			if (positions != null) {
-				return Collections.unmodifiableSet(positions);
+		Postings postings = getPostings(word);
+		if (postings != null) {
+			int found = postings.find(documents.getId(location));
+			if (found >= 0) {
+				return Collections.unmodifiableSet(postings.positions(found));
 			}
 		}
 		return Collections.emptySet();
@@ -254,7 +635,7 @@ public class InvertedIndex {
 	 * @return true if the word count map contains the location, false otherwise
 	 */
 	public boolean hasCount(String location) {
-		return counts.containsKey(location);
+		return getCount(location) > 0;
 	}
 
 	/**
@@ -263,7 +644,7 @@ public class InvertedIndex {
 	 * @return a map of all locations and their counts of unique word stems
 	 */
 	public Map<String, Integer> viewCount() {
-		return Collections.unmodifiableMap(counts);
+		return documents.viewCounts();
 	}
 
 	/**
@@ -274,7 +655,61 @@ public class InvertedIndex {
 	 * @return the count of unique word stems in the specified location, or 0 if the location is not found
 	 */
 	public int getCount(String location) {
-		return counts.getOrDefault(location, 0);
+		return documents.getCount(documents.getId(location));
+	}
+
+	/**
+	 * Resolves the postings of a word into a map sorted by location. Only used when the index is viewed or
+	 * written; searches work directly with document IDs.
+	 *
+	 * @param postings the postings to resolve
+	 * @return a map of locations to the positions of the word in that location
+	 */
+	private TreeMap<String, PositionList> locations(Postings postings) {
+		TreeMap<String, PositionList> locations = new TreeMap<>();
+		for (int i = 0; i < postings.size(); i++) {
+			locations.put(documents.getPath(postings.document(i)), postings.positions(i));
+		}
+		return locations;
+	}
+
+	/**
+	 * A read-only view of the index with document IDs resolved back to locations, in the nested map form
+	 * expected by {@link JsonWriter#writeIndex(Map, Path)}. The locations of each word are resolved lazily as
+	 * the view is iterated.
+	 */
+	private class LocationView extends AbstractMap<String, Map<String, PositionList>> {
+		/** Constructs a view of the enclosing index. */
+		private LocationView() {
+		}
+
+		@Override
+		public Set<Entry<String, Map<String, PositionList>>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Entry<String, Map<String, PositionList>>> iterator() {
+					var words = words().iterator();
+
+					return new Iterator<>() {
+						@Override
+						public boolean hasNext() {
+							return words.hasNext();
+						}
+
+						@Override
+						public Entry<String, Map<String, PositionList>> next() {
+							String word = words.next();
+							return new SimpleImmutableEntry<>(word, locations(getPostings(word)));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return words().size();
+				}
+			};
+		}
 	}
 
 	/**
@@ -288,9 +723,9 @@ public class InvertedIndex {
 		private int count;
 
 		/**
-		 * The path or identifier for the file where the search query was found.
+		 * The document ID of the file where the search query was found.
 		 */
-		private final String location;
+		private final int document;
 
 		/**
 		 * The calculated relevance score of the file based on the search query.
@@ -302,17 +737,17 @@ public class InvertedIndex {
 		 * Initializes the location, count, and total words for a search result,
 		 * and calculates the score as the ratio of count to total words.
 		 *
-		 * @param location the path or identifier for the file where the search query was found
+		 * @param document the document ID of the file where the search query was found
 		 */
-		public SearchResult(String location) {
-			this.location = location;
+		public SearchResult(int document) {
+			this.document = document;
 			this.count = 0;
 			this.score = 0;
 		}
 
 		@Override
 		public String toString() {
-			return String.format("Location: %s, Count: %d, Score: %.8f", this.location, this.count, this.score);
+			return String.format("Location: %s, Count: %d, Score: %.8f", getLocation(), this.count, this.score);
 		}
 
 		@Override
@@ -327,7 +762,7 @@ public class InvertedIndex {
 				return countRes;
 			}
 
-			return this.location.compareToIgnoreCase(o.location);
+			return this.getLocation().compareToIgnoreCase(o.getLocation());
 		}
 
 		/**
@@ -345,17 +780,40 @@ public class InvertedIndex {
 		 * Void method that calculates the score of the given file based off the count and total words of the file.
 		 */
 		private void calculateScore() {
-			this.score = this.count / (double) InvertedIndex.this.getCount(this.location);
+			this.score = this.count / (double) documents.getCount(this.document);
+		}
+
+		/**
+		 * Adds one posting of a query word to the count and updates the score with the scorer provided.
+		 *
+		 * @param frequency the frequency of the query word in the file
+		 * @param weight the weight of the query word computed by the scorer
+		 * @param scorer the scorer to update the score with
+		 * @param averageLength the average number of words in a file of the index
+		 */
+		private void addPosting(int frequency, double weight, Scorer scorer, double averageLength) {
+			this.count += frequency;
+			this.score = scorer.score(this.score, this.count, frequency, weight, documents.getCount(this.document), averageLength);
 		}
 
 		/**
 		 * Returns the location associated with this search result.
-		 * The location typically represents the file path of the file where the search words were found.
+		 * The location typically represents the file path of the file where the search words were found,
+		 * and is resolved from the document ID when requested.
 		 *
 		 * @return the location of the file as a {@link String}
 		 */
 		public String getLocation() {
-			return this.location;
+			return documents.getPath(this.document);
+		}
+
+		/**
+		 * Returns the document ID associated with this search result.
+		 *
+		 * @return the document ID of the file
+		 */
+		public int getDocument() {
+			return this.document;
 		}
 
 		/**
@@ -379,81 +837,434 @@ public class InvertedIndex {
 	}
 
 	/**
-	 * Processes search locations and updates results and sorted results lists.
-	 * For each location, if it doesn't already exist in results, a new SearchResult is created.
-	 * Each SearchResult's word count is incremented by the number of words at that location.
+	 * Recreates the search result of a document with the count and score provided, such as a result read back
+	 * from disk.
 	 *
-	 * @param results A map of location identifiers to SearchResult objects
-	 * @param sortedResults A list of SearchResult objects, sorted by the order they are processed.
-	 * @param locations A map of location identifiers to sets of word counts
+	 * @param location the location of the document
+	 * @param count the number of occurrences of the search query within the document
+	 * @param score the score of the document
+	 * @return the search result, or null if the document has no words in this index
 	 */
-	private void searchHelper(Map<String, SearchResult> results, List<SearchResult> sortedResults, TreeMap<String, TreeSet<Integer>> locations) {
-		for (var entry : locations.entrySet()) {
-			String location = entry.getKey();
-			int wordCount = entry.getValue().size();
+	SearchResult newResult(String location, int count, double score) {
+		int document = documents.getId(location);
+
+		if (document < 0 || documents.getCount(document) == 0) {
+			return null;
+		}
+
+		SearchResult result = new SearchResult(document);
+		result.count = count;
+		result.score = score;
+		return result;
+	}
 
-			var searchResult = results.get(location);
+	/**
+	 * Packs the next document of a word's postings and the index of the word into a single cursor, so cursors
+	 * order by document ID first and then by the order of the words.
+	 *
+	 * @param document the next document ID in the postings of the word
+	 * @param word the index of the word among the matching words
+	 * @return the cursor
+	 */
+	private static long cursor(int document, int word) {
+		return (long) document << Integer.SIZE | word;
+	}
 
-			if (searchResult == null) {
-				searchResult = new SearchResult(location);
-				results.put(location, searchResult);
-				sortedResults.add(searchResult);
+	/**
+	 * Moves a cursor down a binary min-heap of cursors until neither of its children is smaller.
+	 *
+	 * @param heap the cursors, of which the first size form the heap
+	 * @param size the number of cursors in the heap
+	 * @param index the index of the cursor to move down
+	 */
+	private static void siftDown(long[] heap, int size, int index) {
+		long cursor = heap[index];
+
+		while (true) {
+			int child = 2 * index + 1;
+
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+
+			if (heap[child] >= cursor) {
+				break;
 			}
 
-			searchResult.incrementCount(wordCount);
+			heap[index] = heap[child];
+			index = child;
 		}
+
+		heap[index] = cursor;
 	}
 
 	/**
-	 * Generates a list of exact search results for a given list of query words using an inverted index.
-	 * For each query word, it finds matching files and calculates the total number of occurrences
-	 * of the query words in each file, as well as the score for each file based on these occurrences.
+	 * Combines the postings of every matching word into a sorted list of search results.
 	 *
-	 * @param queryWords the list of words to query in the inverted index
+	 * @param matches the postings of the words matching a query
 	 * @return a sorted list of {@link SearchResult} objects representing the search results
 	 */
-	public List<SearchResult> exactSearch(Set<String> queryWords) {
-		HashMap<String, SearchResult> results = new HashMap<>();
-		List<SearchResult> sortedResults = new ArrayList<>();
+	List<SearchResult> collect(List<Postings> matches) {
+		return collect(matches, 0);
+	}
+
+	/**
+	 * Combines the postings of every matching word into the best search results only.
+	 *
+	 * @param matches the postings of the words matching a query
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @return a sorted list of at most the limit of {@link SearchResult} objects
+	 */
+	List<SearchResult> collect(List<Postings> matches, int limit) {
+		return collect(matches, limit, FrequencyScorer.INSTANCE);
+	}
+
+	/**
+	 * Combines the postings of every matching word into the best search results only, scored by the scorer
+	 * provided. The postings lists are merged in document order with a heap of one cursor per word, so the cost
+	 * depends only on the number of matching postings rather than the number of documents in the index.
+	 *
+	 * @param matches the postings of the words matching a query
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @param scorer the scorer to score each posting with
+	 * @return a sorted list of at most the limit of {@link SearchResult} objects
+	 */
+	List<SearchResult> collect(List<Postings> matches, int limit, Scorer scorer) {
+		int words = matches.size();
+		double averageLength = documents.getAverageCount();
+		double[] weights = new double[words];
+		int[] next = new int[words];
+
+		// walks every postings list at once in document order, so each document only needs one search result
+		long[] heap = new long[words];
+		int size = 0;
+
+		for (int word = 0; word < words; word++) {
+			Postings postings = matches.get(word);
+			weights[word] = scorer.weight(postings.size(), documents.getCountedDocuments());
+
+			if (postings.size() > 0) {
+				heap[size++] = cursor(postings.document(0), word);
+			}
+		}
+
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(heap, size, i);
+		}
+
+		List<SearchResult> unsorted = new ArrayList<>();
+		SearchResult current = null;
+
+		while (size > 0) {
+			int document = (int) (heap[0] >>> Integer.SIZE);
+			int word = (int) heap[0];
+			Postings postings = matches.get(word);
+
+			// the postings of a document are added in the order of the words, as when each word is walked in turn
+			if (current == null || current.document != document) {
+				current = new SearchResult(document);
+				unsorted.add(current);
+			}
+
+			current.addPosting(postings.frequency(next[word]), weights[word], scorer, averageLength);
+
+			if (++next[word] < postings.size()) {
+				heap[0] = cursor(postings.document(next[word]), word);
+			} else {
+				heap[0] = heap[--size];
+			}
+
+			siftDown(heap, size, 0);
+		}
+
+		return best(unsorted, limit);
+	}
+
+	/**
+	 * Combines the postings of every matching word into the best search results only, walking every postings
+	 * list at once in document order with MaxScore pruning. Each word is bounded by the highest score any one of
+	 * its postings adds. Once the best results so far are full, the words whose bounds sum to less than the worst
+	 * of them can no longer place a document among the best, so their postings are only looked up in documents
+	 * found in the postings of the other words, and then only while the document can still rank high enough.
+	 *
+	 * <p>
+	 * Documents are scored exactly as by {@link #collect(List, int, Scorer)}, so both return the same results.
+	 *
+	 * @param matches the postings of the words matching a query, at most once each
+	 * @param limit the maximum number of results to return, which must be above 0
+	 * @param scorer the scorer to score each posting with
+	 * @return a sorted list of at most the limit of {@link SearchResult} objects
+	 * @see Scorer
+	 */
+	List<SearchResult> collectTop(List<Postings> matches, int limit, Scorer scorer) {
+		int words = matches.size();
+		double averageLength = documents.getAverageCount();
+		double[] weights = new double[words];
+		double[] bounds = new double[words];
+
+		for (int word = 0; word < words; word++) {
+			Postings postings = matches.get(word);
+			weights[word] = scorer.weight(postings.size(), documents.getCountedDocuments());
+			bounds[word] = bound(postings, weights[word], scorer, averageLength);
+		}
+
+		// the words from the lowest to the highest bound, with the sum of the bounds of every word before each
+		int[] order = new int[words];
+		for (int i = 0; i < words; i++) {
+			int word = i;
+			int j = i;
+
+			for (; j > 0 && bounds[order[j - 1]] > bounds[word]; j--) {
+				order[j] = order[j - 1];
+			}
+
+			order[j] = word;
+		}
+
+		double[] below = new double[words + 1];
+		for (int i = 0; i < words; i++) {
+			below[i + 1] = below[i] + bounds[order[i]];
+		}
+
+		int[] next = new int[words];
+		int[] frequencies = new int[words];
+		PriorityQueue<SearchResult> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+		double threshold = Double.NEGATIVE_INFINITY;
+		int essential = 0;
+
+		while (true) {
+			// the next document is the lowest one left in the postings of the essential words
+			int document = Integer.MAX_VALUE;
+
+			for (int i = essential; i < words; i++) {
+				Postings postings = matches.get(order[i]);
+
+				if (next[order[i]] < postings.size()) {
+					document = Math.min(document, postings.document(next[order[i]]));
+				}
+			}
+
+			if (document == Integer.MAX_VALUE) {
+				break;
+			}
+
+			Arrays.fill(frequencies, 0);
+			double upper = below[essential];
+
+			for (int i = essential; i < words; i++) {
+				int word = order[i];
+				Postings postings = matches.get(word);
+
+				if (next[word] < postings.size() && postings.document(next[word]) == document) {
+					frequencies[word] = postings.frequency(next[word]);
+					upper += bounds[word];
+					next[word]++;
+				}
+			}
+
+			// look up the remaining words from the highest bound down while the document can still rank
+			for (int i = essential - 1; i >= 0 && !pruned(upper, threshold); i--) {
+				int word = order[i];
+				Postings postings = matches.get(word);
+				next[word] = postings.seek(document, next[word]);
+
+				if (next[word] < postings.size() && postings.document(next[word]) == document) {
+					frequencies[word] = postings.frequency(next[word]);
+				} else {
+					upper -= bounds[word];
+				}
+			}
+
+			if (pruned(upper, threshold)) {
+				continue;
+			}
+
+			SearchResult result = new SearchResult(document);
+
+			for (int word = 0; word < words; word++) {
+				if (frequencies[word] > 0) {
+					result.addPosting(frequencies[word], weights[word], scorer, averageLength);
+				}
+			}
+
+			if (heap.size() < limit) {
+				heap.add(result);
+			} else if (result.compareTo(heap.peek()) < 0) {
+				heap.poll();
+				heap.add(result);
+			}
+
+			if (heap.size() == limit) {
+				threshold = heap.peek().getScore();
+
+				while (essential < words && pruned(below[essential + 1], threshold)) {
+					essential++;
+				}
+			}
+		}
+
+		SearchResult[] best = new SearchResult[heap.size()];
+		for (int i = best.length - 1; i >= 0; i--) {
+			best[i] = heap.poll();
+		}
+
+		return Arrays.asList(best);
+	}
+
+	/**
+	 * Returns the highest score any one posting of a word adds to the score of a document.
+	 *
+	 * @param postings the postings of the word
+	 * @param weight the weight of the word computed by the scorer
+	 * @param scorer the scorer to score each posting with
+	 * @param averageLength the average number of words in a document of this index
+	 * @return the highest score of a single posting
+	 */
+	private double bound(Postings postings, double weight, Scorer scorer, double averageLength) {
+		double bound = 0;
+
+		for (int i = 0; i < postings.size(); i++) {
+			int frequency = postings.frequency(i);
+			int length = documents.getCount(postings.document(i));
+			bound = Math.max(bound, scorer.score(0, frequency, frequency, weight, length, averageLength));
+		}
+
+		return bound;
+	}
+
+	/**
+	 * Determines whether a document whose score is at most the bound provided can be skipped, because it would
+	 * score below the worst of the best results.
+	 *
+	 * @param upper the highest score the document could have
+	 * @param threshold the score of the worst of the best results, or negative infinity until there are enough
+	 * @return true if the document cannot rank among the best results
+	 */
+	private static boolean pruned(double upper, double threshold) {
+		return upper < threshold - Math.abs(threshold) * PRUNING_MARGIN;
+	}
+
+	/**
+	 * Sorts the best search results only. The results are kept in a heap of at most the limit provided whose
+	 * head is the worst result kept, so only the results returned are ever sorted.
+	 *
+	 * @param unsorted the search results in any order
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @return a sorted list of at most the limit of {@link SearchResult} objects
+	 */
+	private List<SearchResult> best(List<SearchResult> unsorted, int limit) {
+		if (limit <= 0 || unsorted.size() <= limit) {
+			Collections.sort(unsorted);
+			return unsorted;
+		}
+
+		PriorityQueue<SearchResult> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+
+		for (SearchResult result : unsorted) {
+			if (heap.size() < limit) {
+				heap.add(result);
+			} else if (result.compareTo(heap.peek()) < 0) {
+				heap.poll();
+				heap.add(result);
+			}
+		}
+
+		SearchResult[] best = new SearchResult[heap.size()];
+		for (int i = best.length - 1; i >= 0; i--) {
+			best[i] = heap.poll();
+		}
+
+		return Arrays.asList(best);
+	}
+
+	/**
+	 * Finds the postings of every query word in this index.
+	 *
+	 * @param queryWords the words to find
+	 * @return the postings of the query words that are in this index
+	 */
+	List<Postings> exactMatches(Set<String> queryWords) {
+		List<Postings> matches = new ArrayList<>(queryWords.size());
 
 		for (String word : queryWords) {
-			var locations = index.get(word);
+			var postings = getPostings(word);
 
-			if (locations != null) {
-				searchHelper(results, sortedResults, locations);
+			if (postings != null) {
+				matches.add(postings);
 			}
 		}
 
-		Collections.sort(sortedResults);
-		return sortedResults;
+		return matches;
 	}
 
 	/**
-	 * Generates a list of partial search results for a given list of query words using an inverted index.
-	 * For each query word, it finds matching files and calculates the total number of occurrences
-	 * of the query words in each file, as well as the score for each file based on these occurrences.
+	 * Finds the postings of every word in this index that starts with one of the query words.
 	 *
-	 * @param queryWords the list of words to query in the inverted index
-	 * @return a sorted list of {@link SearchResult} objects representing the search results
+	 * @param queryWords the prefixes to find
+	 * @return the postings of every word starting with a query word, once for each query word it starts with
 	 */
-	public List<SearchResult> partialSearch(Set<String> queryWords) {
-		HashMap<String, SearchResult> results = new HashMap<>();
-		List<SearchResult> sortedResults = new ArrayList<>();
+	List<Postings> partialMatches(Set<String> queryWords) {
+		return partialMatches(queryWords, true);
+	}
+
+	/**
+	 * Finds the postings of every word in this index that starts with one of the query words.
+	 *
+	 * @param queryWords the prefixes to find
+	 * @param aggregate true if a frozen index may return the summed postings of a prefix matching many words
+	 *   instead of the postings of each word
+	 * @return the postings of every word starting with a query word, once for each query word it starts with
+	 * @see FrozenIndex#prefixMatches(String, boolean)
+	 */
+	List<Postings> partialMatches(Set<String> queryWords, boolean aggregate) {
+		List<Postings> matches = new ArrayList<>();
+		FrozenIndex snapshot = frozen;
 
 		for (String prefix : queryWords) {
-			Map<String, TreeMap<String, TreeSet<Integer>>> subMap = index.tailMap(prefix, true);
-			for (Map.Entry<String, TreeMap<String, TreeSet<Integer>>> wordEntry : subMap.entrySet()) {
+			if (snapshot != null) {
+				matches.addAll(snapshot.prefixMatches(prefix, aggregate));
+				continue;
+			}
+
+			Map<String, PostingsList> subMap = index.tailMap(prefix, true);
+			for (Map.Entry<String, PostingsList> wordEntry : subMap.entrySet()) {
 				String word = wordEntry.getKey();
 				if (!word.startsWith(prefix)) {
 					break;
 				}
-				TreeMap<String, TreeSet<Integer>> locations = wordEntry.getValue();
-				searchHelper(results, sortedResults, locations);
+				matches.add(wordEntry.getValue());
 			}
 		}
 
-		Collections.sort(sortedResults);
-		return sortedResults;
+		return matches;
+	}
+
+	/**
+	 * Generates a list of exact search results for a given list of query words using an inverted index.
+	 * For each query word, it finds matching files and calculates the total number of occurrences
+	 * of the query words in each file, as well as the score for each file based on these occurrences.
+	 *
+	 * @param queryWords the list of words to query in the inverted index
+	 * @return a sorted list of {@link SearchResult} objects representing the search results
+	 */
+	public List<SearchResult> exactSearch(Set<String> queryWords) {
+		return collect(exactMatches(queryWords));
+	}
+
+	/**
+	 * Generates a list of partial search results for a given list of query words using an inverted index.
+	 * For each query word, it finds matching files and calculates the total number of occurrences
+	 * of the query words in each file, as well as the score for each file based on these occurrences.
+	 *
+	 * @param queryWords the list of words to query in the inverted index
+	 * @return a sorted list of {@link SearchResult} objects representing the search results
+	 */
+	public List<SearchResult> partialSearch(Set<String> queryWords) {
+		return collect(partialMatches(queryWords));
 	}
 
 	/**
@@ -466,4 +1277,318 @@ public class InvertedIndex {
 	public List<SearchResult> search(Set<String> queryWords, boolean partialSearch) {
 		return partialSearch ? partialSearch(queryWords) : exactSearch(queryWords);
 	}
+
+	/**
+	 * Finds the documents containing the words as a phrase, at consecutive positions in the order given. The
+	 * count of each result is the number of times the phrase occurs in the document, and results are always
+	 * scored by the frequency of the phrase.
+	 *
+	 * @param phrase the stemmed words of the phrase, in order
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @return a sorted list of at most the limit of SearchResult objects
+	 */
+	public List<SearchResult> phraseSearch(List<String> phrase, int limit) {
+		return positionalSearch(phrase, true, 0, limit);
+	}
+
+	/**
+	 * Finds the documents containing every word within a distance of the first word. The count of each result
+	 * is the number of positions of the first word that have every other word at another position at most the
+	 * distance before or after it, and results are always scored by that count.
+	 *
+	 * @param words the stemmed words to find, starting with the word the others must be near
+	 * @param distance the greatest number of positions between the first word and any other word
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @return a sorted list of at most the limit of SearchResult objects
+	 */
+	public List<SearchResult> proximitySearch(List<String> words, int distance, int limit) {
+		return positionalSearch(words, false, distance, limit);
+	}
+
+	/**
+	 * Finds the documents containing every word in position, walking the postings of the rarest word and
+	 * looking up the other words in each of its documents.
+	 *
+	 * @param words the stemmed words to find
+	 * @param phrase true if the words must be consecutive, or false if they must be within the distance
+	 * @param distance the greatest number of positions between the first word and any other word
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @return a sorted list of at most the limit of SearchResult objects
+	 */
+	private List<SearchResult> positionalSearch(List<String> words, boolean phrase, int distance, int limit) {
+		List<SearchResult> unsorted = new ArrayList<>();
+
+		if (words.isEmpty()) {
+			return unsorted;
+		}
+
+		Postings[] postings = new Postings[words.size()];
+		int rarest = 0;
+
+		for (int i = 0; i < postings.length; i++) {
+			postings[i] = getPostings(words.get(i));
+
+			if (postings[i] == null) {
+				return unsorted;
+			}
+
+			if (postings[i].size() < postings[rarest].size()) {
+				rarest = i;
+			}
+		}
+
+		int[][] positions = new int[postings.length][];
+
+		for (int i = 0; i < postings[rarest].size(); i++) {
+			int document = postings[rarest].document(i);
+			boolean found = true;
+
+			for (int j = 0; j < postings.length && found; j++) {
+				int index = postings[j].find(document);
+				found = index >= 0;
+
+				if (found) {
+					positions[j] = postings[j].positions(index).toIntArray();
+				}
+			}
+
+			int count = found ? countMatches(positions, phrase, distance) : 0;
+
+			if (count > 0) {
+				SearchResult result = new SearchResult(document);
+				result.incrementCount(count);
+				unsorted.add(result);
+			}
+		}
+
+		return best(unsorted, limit);
+	}
+
+	/**
+	 * Counts the positions of the first word that have every other word in position, merging the sorted
+	 * positions of every word. Positions of the first word only increase, so the position of each other word
+	 * only moves forward and every list is walked once.
+	 *
+	 * @param positions the sorted positions of every word in one document
+	 * @param phrase true if word {@code i} must be {@code i} positions after the first word, or false if every
+	 *   word must be within the distance of the first word
+	 * @param distance the greatest number of positions between the first word and any other word
+	 * @return the number of matches in the document
+	 */
+	private static int countMatches(int[][] positions, boolean phrase, int distance) {
+		int[] next = new int[positions.length];
+		int count = 0;
+
+		for (int anchor : positions[0]) {
+			boolean matched = true;
+
+			for (int i = 1; i < positions.length && matched; i++) {
+				int[] list = positions[i];
+				int low = phrase ? anchor + i : anchor - distance;
+				int high = phrase ? anchor + i : anchor + distance;
+
+				while (next[i] < list.length && list[next[i]] < low) {
+					next[i]++;
+				}
+
+				// a repeated word of a proximity query must be found at another position than the first word
+				int found = !phrase && next[i] < list.length && list[next[i]] == anchor ? next[i] + 1 : next[i];
+				matched = found < list.length && list[found] <= high;
+			}
+
+			if (matched) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Finds the documents containing every required word and none of the excluded words, or containing any
+	 * optional word if no words are required. Every required and optional word in a match counts towards its
+	 * score, in sorted order as in an ordinary search.
+	 *
+	 * <p>
+	 * The postings are never merged into a list of every document containing any word. Matches of required words
+	 * come from intersecting their postings, led by the rarest one and galloping ahead in the others, and the
+	 * postings of the excluded and optional words are only sought at those matches. Without required words, the
+	 * postings of the optional words are walked together in document order instead.
+	 *
+	 * @param required the stemmed words every match must contain
+	 * @param optional the stemmed words that only add to the score of a match
+	 * @param excluded the stemmed words no match may contain
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @param scorer the scorer to rank the results with
+	 * @return a sorted list of at most the limit of SearchResult objects
+	 * @see Postings#seek(int, int)
+	 */
+	public List<SearchResult> booleanSearch(Set<String> required, Set<String> optional, Set<String> excluded, int limit, Scorer scorer) {
+		List<SearchResult> unsorted = new ArrayList<>();
+		TreeSet<String> scored = new TreeSet<>(optional);
+		scored.addAll(required);
+
+		Postings[] postings = new Postings[scored.size()];
+		boolean[] needed = new boolean[postings.length];
+		int lead = -1;
+		int words = 0;
+
+		for (String word : scored) {
+			Postings found = getPostings(word);
+
+			if (found == null) {
+				if (required.contains(word)) {
+					return unsorted;
+				}
+				continue;
+			}
+
+			postings[words] = found;
+			needed[words] = required.contains(word);
+
+			if (needed[words] && (lead < 0 || found.size() < postings[lead].size())) {
+				lead = words;
+			}
+
+			words++;
+		}
+
+		List<Postings> unwanted = exactMatches(excluded);
+		int[] next = new int[words];
+		int[] skip = new int[unwanted.size()];
+		double[] weights = new double[words];
+		double averageLength = documents.getAverageCount();
+
+		for (int i = 0; i < words; i++) {
+			weights[i] = scorer.weight(postings[i].size(), documents.getCountedDocuments());
+		}
+
+		while (true) {
+			int document = lead >= 0 ? intersect(postings, needed, next, lead, words) : union(postings, next, words);
+
+			if (document < 0) {
+				break;
+			}
+
+			boolean allowed = true;
+
+			for (int i = 0; i < skip.length && allowed; i++) {
+				skip[i] = unwanted.get(i).seek(document, skip[i]);
+				allowed = skip[i] >= unwanted.get(i).size() || unwanted.get(i).document(skip[i]) != document;
+			}
+
+			SearchResult result = allowed ? new SearchResult(document) : null;
+
+			for (int i = 0; i < words; i++) {
+				next[i] = postings[i].seek(document, next[i]);
+
+				if (next[i] < postings[i].size() && postings[i].document(next[i]) == document) {
+					if (result != null) {
+						result.addPosting(postings[i].frequency(next[i]), weights[i], scorer, averageLength);
+					}
+
+					next[i]++;
+				}
+			}
+
+			if (result != null) {
+				unsorted.add(result);
+			}
+		}
+
+		return best(unsorted, limit);
+	}
+
+	/**
+	 * Finds the next document in the postings of every required word by leapfrogging: the postings of each
+	 * required word are sought at the current document, and any document found past it becomes the document the
+	 * rarest postings seek next.
+	 *
+	 * @param postings the postings of the scored words
+	 * @param needed whether each scored word is required
+	 * @param next the index of the next posting of each scored word
+	 * @param lead the index of the rarest required word
+	 * @param words the number of scored words
+	 * @return the next document containing every required word, or -1 if there are none left
+	 */
+	private static int intersect(Postings[] postings, boolean[] needed, int[] next, int lead, int words) {
+		while (next[lead] < postings[lead].size()) {
+			int document = postings[lead].document(next[lead]);
+			int ahead = document;
+
+			for (int i = 0; i < words && ahead == document; i++) {
+				if (!needed[i] || i == lead) {
+					continue;
+				}
+
+				next[i] = postings[i].seek(document, next[i]);
+
+				if (next[i] >= postings[i].size()) {
+					return -1;
+				}
+
+				ahead = postings[i].document(next[i]);
+			}
+
+			if (ahead == document) {
+				return document;
+			}
+
+			next[lead] = postings[lead].seek(ahead, next[lead]);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Finds the next document in the postings of any scored word.
+	 *
+	 * @param postings the postings of the scored words
+	 * @param next the index of the next posting of each scored word
+	 * @param words the number of scored words
+	 * @return the lowest next document of any word, or -1 if there are none left
+	 */
+	private static int union(Postings[] postings, int[] next, int words) {
+		int document = -1;
+
+		for (int i = 0; i < words; i++) {
+			if (next[i] < postings[i].size() && (document < 0 || postings[i].document(next[i]) < document)) {
+				document = postings[i].document(next[i]);
+			}
+		}
+
+		return document;
+	}
+
+	/**
+	 * Performs a search for the given query words and returns only the best results, without sorting every
+	 * matching document.
+	 *
+	 * @param queryWords A set of words to search for
+	 * @param partialSearch A boolean flag indicating whether to perform a partial search (true) or an exact search (false)
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @return A sorted list of at most the limit of SearchResult objects that match the search criteria
+	 */
+	public List<SearchResult> search(Set<String> queryWords, boolean partialSearch, int limit) {
+		return search(queryWords, partialSearch, limit, FrequencyScorer.INSTANCE);
+	}
+
+	/**
+	 * Performs a search for the given query words and returns only the best results, ranked by the scorer
+	 * provided instead of by the frequency of the query words.
+	 *
+	 * @param queryWords A set of words to search for
+	 * @param partialSearch A boolean flag indicating whether to perform a partial search (true) or an exact search (false)
+	 * @param limit the maximum number of results to return, or 0 or less to return every result
+	 * @param scorer the scorer to rank the results with
+	 * @return A sorted list of at most the limit of SearchResult objects that match the search criteria
+	 */
+	public List<SearchResult> search(Set<String> queryWords, boolean partialSearch, int limit, Scorer scorer) {
+		if (partialSearch) {
+			return collect(partialMatches(queryWords, scorer.isAdditive()), limit, scorer);
+		}
+
+		List<Postings> matches = exactMatches(queryWords);
+		return limit > 0 && matches.size() > 1 ? collectTop(matches, limit, scorer) : collect(matches, limit, scorer);
+	}
 }
\ No newline at end of file
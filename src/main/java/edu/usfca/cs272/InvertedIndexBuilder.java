@@ -8,7 +8,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import opennlp.tools.stemmer.Stemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
 /**
  * Class for building an inverted index from text files.
@@ -55,24 +54,37 @@ public class InvertedIndexBuilder {
 
 	/**
 	 * Processes a single file by indexing its content. It extracts words using a stemming process and adds them to the inverted index,
-	 * along with the file's path and a starting position for each word.
+	 * along with the file's document ID and a starting position for each word.
 	 *
 	 * @param file The file to be processed.
 	 * @param invertedIndex The inverted index to which the extracted words and their positions are added.
 	 * @throws IOException If an I/O error occurs while reading from the file.
 	 */
 	public static void processFile(Path file, InvertedIndex invertedIndex) throws IOException {
-		Stemmer stemmer = new SnowballStemmer(SnowballStemmer.ALGORITHM.ENGLISH);
-		int position = 1;
-		String filePath = file.toString();
+		int document = invertedIndex.addDocument(file.toString());
 		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				String[] parsedWords = FileStemmer.parse(line);
-				for (String word : parsedWords) {
-					String stemmed = stemmer.stem(word).toString();
-					invertedIndex.add(stemmed, filePath, position++);
-				}
+			processReader(reader, document, invertedIndex);
+		}
+	}
+
+	/**
+	 * Indexes the text read from a reader as the content of a document. Each line is parsed and stemmed with the
+	 * shared {@link StemCache}, and every stem is added to the inverted index with its position, starting at 1.
+	 *
+	 * @param reader The reader to read lines of text from.
+	 * @param document The document ID the text belongs to.
+	 * @param invertedIndex The inverted index to which the extracted words and their positions are added.
+	 * @throws IOException If an I/O error occurs while reading.
+	 */
+	public static void processReader(BufferedReader reader, int document, InvertedIndex invertedIndex) throws IOException {
+		Stemmer stemmer = StemCache.SHARED;
+		int position = 1;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] parsedWords = Tokenizer.parse(line);
+			for (String word : parsedWords) {
+				String stemmed = stemmer.stem(word).toString();
+				invertedIndex.add(stemmed, document, position++);
 			}
 		}
 	}
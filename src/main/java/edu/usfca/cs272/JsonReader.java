@@ -0,0 +1,283 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the JSON written by {@link JsonWriter#writeIndex(java.util.Map, Path)}
+ * back into an inverted index. The JSON is streamed one character at a time and
+ * each position is added to the index as soon as it is read, so memory use is
+ * bounded by the index being built rather than the size of the file. Reading
+ * into a thread-safe index briefly holds a second copy of the words read.
+ *
+ * <p>
+ * Only the nested object of words to locations to arrays of positions written
+ * for the index is supported. Strings may contain the standard JSON escape
+ * sequences, and whitespace is allowed anywhere between tokens.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ */
+public class JsonReader {
+	/** The reader to parse characters from. */
+	private final Reader reader;
+
+	/** The next character to parse, or -1 at the end of the input. */
+	private int next;
+
+	/** The number of characters consumed so far, used for error messages. */
+	private long offset;
+
+	/**
+	 * Initializes a parser positioned at the first character of the reader.
+	 *
+	 * @param reader the reader to parse characters from
+	 * @throws IOException if an IO error occurs
+	 */
+	private JsonReader(Reader reader) throws IOException {
+		this.reader = reader;
+		this.offset = -1;
+		advance();
+	}
+
+	/**
+	 * Reads an index previously written to JSON and adds every word, location, and
+	 * position to the index provided. Word counts are restored from the largest
+	 * position of each location, the same way they are tracked while building an
+	 * index from text. A single-threaded index is read into directly. A
+	 * thread-safe index is read into a separate index first, which is combined
+	 * into it at the end so it is only locked once, at the cost of holding both
+	 * copies at once. If the file is invalid, a single-threaded index keeps
+	 * whatever was read before the error.
+	 *
+	 * @param path the JSON file to read
+	 * @param index the index to add the words to
+	 * @throws IOException if an IO error occurs or the file is not a JSON index
+	 *
+	 * @see JsonWriter#writeIndex(java.util.Map, Path)
+	 */
+	public static void readIndex(Path path, InvertedIndex index) throws IOException {
+		InvertedIndex target = index instanceof MultiThreadedInvertedIndex ? new InvertedIndex(index.isCompressed()) : index;
+
+		try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+			new JsonReader(reader).readIndex(target);
+		}
+
+		if (target != index) {
+			index.combine(target);
+		}
+	}
+
+	/**
+	 * Parses the nested object of words to locations to positions.
+	 *
+	 * @param index the index to add the words to
+	 * @throws IOException if an IO error occurs or the input is not a JSON index
+	 */
+	private void readIndex(InvertedIndex index) throws IOException {
+		expect('{');
+
+		if (!consume('}')) {
+			do {
+				String word = readString();
+				expect(':');
+				expect('{');
+
+				if (!consume('}')) {
+					do {
+						int document = index.addDocument(readString());
+						expect(':');
+						expect('[');
+
+						if (!consume(']')) {
+							do {
+								index.add(word, document, readInt());
+							} while (consume(','));
+
+							expect(']');
+						}
+					} while (consume(','));
+
+					expect('}');
+				}
+			} while (consume(','));
+
+			expect('}');
+		}
+
+		skipWhitespace();
+
+		if (next != -1) {
+			throw error("end of input");
+		}
+	}
+
+	/**
+	 * Reads a quoted string, decoding any escape sequences.
+	 *
+	 * @return the string without its quotes
+	 * @throws IOException if an IO error occurs or no string is found
+	 */
+	private String readString() throws IOException {
+		expect('"');
+		StringBuilder builder = new StringBuilder();
+
+		while (next != '"') {
+			if (next == -1) {
+				throw error("closing quote");
+			}
+
+			if (next == '\\') {
+				advance();
+				builder.append(readEscape());
+			}
+			else {
+				builder.append((char) next);
+			}
+
+			advance();
+		}
+
+		advance();
+		return builder.toString();
+	}
+
+	/**
+	 * Decodes the escape sequence starting at the current character, which
+	 * follows a backslash.
+	 *
+	 * @return the escaped character
+	 * @throws IOException if an IO error occurs or the escape is not valid
+	 */
+	private char readEscape() throws IOException {
+		switch (next) {
+			case '"', '\\', '/':
+				return (char) next;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				int value = 0;
+				for (int i = 0; i < 4; i++) {
+					advance();
+					int digit = Character.digit(next, 16);
+					if (digit < 0) {
+						throw error("hexadecimal digit");
+					}
+					value = value * 16 + digit;
+				}
+				return (char) value;
+			default:
+				throw error("escape sequence");
+		}
+	}
+
+	/**
+	 * Reads an integer, which may be negative.
+	 *
+	 * @return the integer read
+	 * @throws IOException if an IO error occurs or no integer is found
+	 */
+	private int readInt() throws IOException {
+		skipWhitespace();
+		boolean negative = next == '-';
+
+		if (negative) {
+			advance();
+		}
+
+		if (next < '0' || next > '9') {
+			throw error("digit");
+		}
+
+		long value = 0;
+		long limit = negative ? Integer.MAX_VALUE + 1L : Integer.MAX_VALUE;
+
+		while (next >= '0' && next <= '9') {
+			value = value * 10 + (next - '0');
+
+			if (value > limit) {
+				throw error("smaller number");
+			}
+
+			advance();
+		}
+
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * Consumes the character if it is the next character after any whitespace.
+	 *
+	 * @param expected the character to consume
+	 * @return true if the character was consumed
+	 * @throws IOException if an IO error occurs
+	 */
+	private boolean consume(char expected) throws IOException {
+		skipWhitespace();
+
+		if (next == expected) {
+			advance();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Consumes the character, which must be the next character after any
+	 * whitespace.
+	 *
+	 * @param expected the character to consume
+	 * @throws IOException if an IO error occurs or a different character is found
+	 */
+	private void expect(char expected) throws IOException {
+		if (!consume(expected)) {
+			throw error("'" + expected + "'");
+		}
+	}
+
+	/**
+	 * Skips any whitespace characters.
+	 *
+	 * @throws IOException if an IO error occurs
+	 */
+	private void skipWhitespace() throws IOException {
+		while (next == ' ' || next == '\n' || next == '\r' || next == '\t') {
+			advance();
+		}
+	}
+
+	/**
+	 * Reads the next character.
+	 *
+	 * @throws IOException if an IO error occurs
+	 */
+	private void advance() throws IOException {
+		next = reader.read();
+		offset++;
+	}
+
+	/**
+	 * Creates an exception describing what was expected at the current character.
+	 *
+	 * @param expected a description of what was expected
+	 * @return the exception to throw
+	 */
+	private IOException error(String expected) {
+		String found = next == -1 ? "end of input" : "'" + (char) next + "'";
+		return new IOException("Expected " + expected + " but found " + found + " at character " + offset);
+	}
+}
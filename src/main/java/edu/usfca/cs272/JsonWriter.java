@@ -69,10 +69,53 @@ public class JsonWriter {
 	public static void writeQuote(String element, Writer writer, int indent) throws IOException {
 		writeIndent(writer, indent);
 		writer.write('"');
-		writer.write(element);
+		writer.write(escape(element));
 		writer.write('"');
 	}
 
+	/**
+	 * Escapes the quotation marks, backslashes, and control characters of text
+	 * so it can be written between {@code " "} quotation marks, such as the key
+	 * of a quoted phrase query.
+	 *
+	 * @param text the text to escape
+	 * @return the escaped text, or the text itself if nothing needs escaping
+	 */
+	public static String escape(String text) {
+		int i = 0;
+
+		while (i < text.length() && text.charAt(i) != '"' && text.charAt(i) != '\\' && text.charAt(i) >= ' ') {
+			i++;
+		}
+
+		if (i == text.length()) {
+			return text;
+		}
+
+		StringBuilder escaped = new StringBuilder(text.length() + 8).append(text, 0, i);
+
+		for (; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			switch (c) {
+				case '"' -> escaped.append("\\\"");
+				case '\\' -> escaped.append("\\\\");
+				case '\n' -> escaped.append("\\n");
+				case '\r' -> escaped.append("\\r");
+				case '\t' -> escaped.append("\\t");
+				default -> {
+					if (c < ' ') {
+						escaped.append(String.format("\\u%04x", (int) c));
+					} else {
+						escaped.append(c);
+					}
+				}
+			}
+		}
+
+		return escaped.toString();
+	}
+
 	/**
 	 * Writes the elements as a pretty JSON array.
 	 *
@@ -159,7 +202,7 @@ public class JsonWriter {
 	 */
 	public static void writeObjectHelper(String key, Number val, Writer writer, int indent) throws IOException {
 		writer.write("\"");
-		writer.write(key);
+		writer.write(escape(key));
 		writer.write("\": ");
 		writer.write(String.valueOf(val));
 	}
@@ -251,7 +294,7 @@ public class JsonWriter {
 	 */
 	public static void writeObjectArraysHelper(String key, 	Writer writer) throws IOException {
 		writer.write("\"");
-		writer.write(key);
+		writer.write(escape(key));
 		writer.write("\": ");
 	}
 
@@ -422,7 +465,7 @@ public class JsonWriter {
 	 * @throws IOException If writing to the writer fails.
 	 */
 	private static void writeIndexHelper(Map.Entry<String, ? extends Map<String, ? extends Collection<? extends Number>>> wordEntry, Writer writer, int indent) throws IOException {
-		writer.write("\"" + wordEntry.getKey() + "\": ");
+		writer.write("\"" + escape(wordEntry.getKey()) + "\": ");
 		writeObjectArrays(wordEntry.getValue(), writer, indent);
 	}
 
@@ -511,7 +554,7 @@ public class JsonWriter {
 		writer.write(FORMATTER.format(result.getScore()) + ",\n");
 
 		writeIndent("\"where\": ", writer, indent + 1);
-		writer.write("\"" + result.getLocation() + "\"\n");
+		writer.write("\"" + escape(result.getLocation()) + "\"\n");
 
 		writeIndent("}", writer, indent);
 	}
@@ -0,0 +1,238 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Records the size, modification time, and content hash of every file in a
+ * persisted index, so a later run can tell which files changed since the index
+ * was written. The manifest is stored as {@link #MANIFEST_FILE} in the segment
+ * directory of the index.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ *
+ * @see IncrementalIndexer
+ */
+public class Manifest {
+	/** The name of the manifest file in a segment directory. */
+	public static final String MANIFEST_FILE = "manifest.bin";
+
+	/** The algorithm used to hash file contents. */
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	/** The number of bytes hashed at a time. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The recorded state of a single file.
+	 */
+	public static class Entry {
+		/** The size of the file in bytes. */
+		private final long size;
+
+		/** The last modification time of the file in milliseconds. */
+		private final long modified;
+
+		/** The hash of the contents of the file. */
+		private final byte[] hash;
+
+		/**
+		 * Constructs an entry for the state of a file.
+		 *
+		 * @param size the size of the file in bytes
+		 * @param modified the last modification time of the file in milliseconds
+		 * @param hash the hash of the contents of the file
+		 */
+		public Entry(long size, long modified, byte[] hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+		}
+
+		/**
+		 * Determines whether the file has the same size and modification time as
+		 * this entry, in which case it is assumed to be unchanged without hashing it.
+		 *
+		 * @param attributes the current attributes of the file
+		 * @return true if the size and modification time match
+		 */
+		public boolean matches(BasicFileAttributes attributes) {
+			return size == attributes.size() && modified == attributes.lastModifiedTime().toMillis();
+		}
+
+		/**
+		 * Determines whether the contents of the file have the same hash as this
+		 * entry.
+		 *
+		 * @param other the entry describing the current contents of the file
+		 * @return true if the hashes match
+		 */
+		public boolean sameContent(Entry other) {
+			return size == other.size && Arrays.equals(hash, other.hash);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Size: %d, Modified: %d, Hash: %s", size, modified, HexFormat.of().formatHex(hash));
+		}
+	}
+
+	/** Maps the location of every file to its recorded state. */
+	private final TreeMap<String, Entry> entries;
+
+	/**
+	 * Constructs an empty manifest.
+	 */
+	public Manifest() {
+		this.entries = new TreeMap<>();
+	}
+
+	/**
+	 * Describes the current state of a file by reading its attributes and hashing
+	 * its contents.
+	 *
+	 * @param file the file to describe
+	 * @param attributes the current attributes of the file
+	 * @return the entry for the file
+	 * @throws IOException if an IO error occurs reading the file
+	 */
+	public static Entry describe(Path file, BasicFileAttributes attributes) throws IOException {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java platform supports " + HASH_ALGORITHM + ".", e);
+		}
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		return new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), digest.digest());
+	}
+
+	/**
+	 * Returns the recorded state of a file.
+	 *
+	 * @param location the location of the file
+	 * @return the entry of the file, or null if the file is not in this manifest
+	 */
+	public Entry get(String location) {
+		return entries.get(location);
+	}
+
+	/**
+	 * Records the state of a file, replacing any previous entry.
+	 *
+	 * @param location the location of the file
+	 * @param entry the state of the file
+	 */
+	public void put(String location, Entry entry) {
+		entries.put(location, entry);
+	}
+
+	/**
+	 * Returns the locations of every file in this manifest.
+	 *
+	 * @return an unmodifiable view of the locations
+	 */
+	public Set<String> viewLocations() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	/**
+	 * Returns the number of files in this manifest.
+	 *
+	 * @return the number of files
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Writes this manifest to the manifest file of a segment directory.
+	 *
+	 * @param directory the segment directory to write to
+	 * @throws IOException if an IO error occurs
+	 */
+	public void write(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(MANIFEST_FILE))))) {
+			FrozenIndex.writeMagic(out);
+			out.writeInt(entries.size());
+
+			for (var entry : entries.entrySet()) {
+				byte[] bytes = entry.getKey().getBytes(UTF_8);
+				Entry value = entry.getValue();
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				out.writeLong(value.size);
+				out.writeLong(value.modified);
+				out.writeInt(value.hash.length);
+				out.write(value.hash);
+			}
+		}
+	}
+
+	/**
+	 * Reads the manifest file of a segment directory.
+	 *
+	 * @param directory the segment directory to read from
+	 * @return the manifest read
+	 * @throws IOException if an IO error occurs or the file is not a manifest
+	 */
+	public static Manifest read(Path directory) throws IOException {
+		Path file = directory.resolve(MANIFEST_FILE);
+		Manifest manifest = new Manifest();
+
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			FrozenIndex.checkMagic(ByteBuffer.wrap(in.readNBytes(Integer.BYTES)), file);
+			int total = in.readInt();
+
+			for (int i = 0; i < total; i++) {
+				String location = new String(in.readNBytes(in.readInt()), UTF_8);
+				long size = in.readLong();
+				long modified = in.readLong();
+				byte[] hash = in.readNBytes(in.readInt());
+				manifest.put(location, new Entry(size, modified, hash));
+			}
+		}
+
+		return manifest;
+	}
+
+	/**
+	 * Determines whether a segment directory has a manifest file.
+	 *
+	 * @param directory the segment directory
+	 * @return true if the manifest file exists
+	 */
+	public static boolean exists(Path directory) {
+		return Files.isRegularFile(directory.resolve(MANIFEST_FILE));
+	}
+}
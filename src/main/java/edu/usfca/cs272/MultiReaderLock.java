@@ -1,6 +1,7 @@
 package edu.usfca.cs272;
 
 import java.util.ConcurrentModificationException;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -16,6 +17,11 @@ import org.apache.logging.log4j.Logger;
  * threads, so long as there are no writers. The write lock is exclusive. The
  * active writer is able to acquire read or write locks as long as it is active.
  *
+ * <p>
+ * Threads wait on a {@link ReentrantLock} and {@link Condition} rather than a
+ * monitor, so a virtual thread waiting for this lock unmounts from its carrier
+ * thread instead of pinning it.
+ *
  * <!-- simplified lock used for this class -->
  * @see SimpleLock
  *
@@ -42,14 +48,17 @@ public class MultiReaderLock {
 	private static final Logger log = LogManager.getLogger();
 
 	/**
-	 * The lock object used for synchronized access of readers and writers. For
+	 * The lock used for synchronized access of readers and writers. For
 	 * security reasons, a separate private final lock object is used.
 	 *
 	 * @see <a href=
 	 *   "https://wiki.sei.cmu.edu/confluence/display/java/LCK00-J.+Use+private+final+lock+objects+to+synchronize+classes+that+may+interact+with+untrusted+code">
 	 *   SEI CERT Oracle Coding Standard for Java</a>
 	 */
-	private final Object lock = new Object();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signaled whenever the last reader or writer releases its lock. */
+	private final Condition released = lock.newCondition();
 
 	/**
 	 * Returns the reader lock.
@@ -75,8 +84,11 @@ public class MultiReaderLock {
 	 * @return the number of active readers
 	 */
 	public int getReaders() {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			return readers;
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -86,8 +98,11 @@ public class MultiReaderLock {
 	 * @return the number of active writers
 	 */
 	public int getWriters() {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			return writers;
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -101,8 +116,11 @@ public class MultiReaderLock {
 	 * @see Thread#currentThread()
 	 */
 	public boolean isActiveWriter() {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			return Thread.currentThread().equals(activeWriter);
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -141,26 +159,28 @@ public class MultiReaderLock {
 		 */
 		@Override
 		public void lock() {
+			lock.lock();
 			try {
-				synchronized (lock) {
-					// loop waits if there is an active writer that is not the current thread
-					// prevents readers from proceeding when a write operation is happening
-					// TODO Either use .equals or the isActiveWriter method
-					while (writers > 0 && activeWriter != Thread.currentThread()) {
-						// causes the current thread to wait until another thread invokes the notify() method
-						// or the notifyAll() method for this object 'lock'
-						lock.wait();
-					}
-
-					readers++;
-					// increment the number of active readers indicating that another thread
-					// has started a read operation
+				// loop waits if there is an active writer that is not the current thread
+				// prevents readers from proceeding when a write operation is happening
+				// TODO Either use .equals or the isActiveWriter method
+				while (writers > 0 && activeWriter != Thread.currentThread()) {
+					// causes the current thread to wait until another thread signals
+					// the condition 'released'
+					released.await();
 				}
+
+				readers++;
+				// increment the number of active readers indicating that another thread
+				// has started a read operation
 			}
 			catch (InterruptedException ex) {
 				log.catching(Level.DEBUG, ex);
 				Thread.currentThread().interrupt();
 			}
+			finally {
+				lock.unlock();
+			}
 		}
 
 		/**
@@ -171,7 +191,8 @@ public class MultiReaderLock {
 		 */
 		@Override
 		public void unlock() throws IllegalStateException {
-			synchronized(lock) {
+			lock.lock();
+			try {
 				if (readers <= 0) {
 					// checks if there are no active readers. If there are it's illegal to unlock
 					throw new IllegalStateException("Error");
@@ -180,11 +201,14 @@ public class MultiReaderLock {
 				// decrease the number of active readers as one reader has finished its read operation
 
 				if (readers == 0) {
-					// if there are no more readers left, notify all waiting threads
+					// if there are no more readers left, signal all waiting threads
 					// could wake up waiting writer threads
-					lock.notifyAll();
+					released.signalAll();
 				}
 			}
+			finally {
+				lock.unlock();
+			}
 		}
 	}
 
@@ -201,17 +225,18 @@ public class MultiReaderLock {
 		 */
 		@Override
 		public void lock() {
-			synchronized (lock) {
-				try {
-					while (( writers > 0 || readers > 0 ) && activeWriter != Thread.currentThread()) { // TODO Avoid != comparison for objects
-						lock.wait();
-					}
-					writers++;
-					activeWriter = Thread.currentThread();
-				} catch (InterruptedException e) {
-					log.catching(Level.DEBUG, e);
-					Thread.currentThread().interrupt();
+			lock.lock();
+			try {
+				while (( writers > 0 || readers > 0 ) && activeWriter != Thread.currentThread()) { // TODO Avoid != comparison for objects
+					released.await();
 				}
+				writers++;
+				activeWriter = Thread.currentThread();
+			} catch (InterruptedException e) {
+				log.catching(Level.DEBUG, e);
+				Thread.currentThread().interrupt();
+			} finally {
+				lock.unlock();
 			}
 		}
 
@@ -225,7 +250,8 @@ public class MultiReaderLock {
 		 */
 		@Override
 		public void unlock() throws IllegalStateException, ConcurrentModificationException {
-			synchronized (lock) {
+			lock.lock();
+			try {
 				if (writers <= 0) {
 					throw new IllegalStateException("No writers to unlock");
 				}
@@ -236,8 +262,10 @@ public class MultiReaderLock {
 				writers--;
 				if (writers == 0) {
 					activeWriter = null;
-					lock.notifyAll();
+					released.signalAll();
 				}
+			} finally {
+				lock.unlock();
 			}
 		}
 	}
@@ -3,6 +3,7 @@ package edu.usfca.cs272;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -19,14 +20,117 @@ public class MultiThreadedInvertedIndex extends InvertedIndex {
 	 */
 	private final MultiReaderLock lock;
 
+	/**
+	 * Lock returned for reads once the index is frozen, since a frozen index is never modified again.
+	 */
+	static final MultiReaderLock.SimpleLock UNLOCKED = new Unlocked();
+
 	/**
 	 * Constructs a new MultiThreadedInvertedIndex.
 	 * Initializes a lock used for managing concurrent read and exclusive write access.
 	 */
 	public MultiThreadedInvertedIndex () {
+		this(false);
+	}
+
+	/**
+	 * Constructs a new MultiThreadedInvertedIndex, optionally storing positions as compressed gaps.
+	 * Initializes a lock used for managing concurrent read and exclusive write access.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 */
+	public MultiThreadedInvertedIndex (boolean compressed) {
+		this(compressed, new DocumentTable());
+	}
+
+	/**
+	 * Constructs a new MultiThreadedInvertedIndex that assigns document IDs from the document table provided.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 * @param documents the document table to use
+	 */
+	MultiThreadedInvertedIndex(boolean compressed, DocumentTable documents) {
+		super(compressed, documents);
 		this.lock = new MultiReaderLock();
 	}
 
+	/**
+	 * Returns the lock to hold while reading the index. Once the index is frozen no lock is needed, so reads
+	 * skip the {@link MultiReaderLock} entirely. The index may be frozen between choosing the lock and taking it,
+	 * so callers must keep the lock returned and release that same lock, never calling this method again.
+	 * Subclasses that guard reads with locks of their own may return {@link #UNLOCKED} instead.
+	 *
+	 * @return the read lock, or a lock that does nothing if the index is frozen
+	 */
+	MultiReaderLock.SimpleLock readLock() {
+		return isFrozen() ? UNLOCKED : lock.readLock();
+	}
+
+	/**
+	 * Freezes the index while holding the write lock, so no reader sees the index partially compacted.
+	 */
+	@Override
+	public void freeze() {
+		lock.writeLock().lock();
+		try {
+			super.freeze();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void writeSegment(Path directory) throws IOException {
+		var read = readLock();
+		read.lock();
+		try {
+			super.writeSegment(directory);
+		} finally {
+			read.unlock();
+		}
+	}
+
+	@Override
+	public void openSegment(Path directory) throws IOException {
+		lock.writeLock().lock();
+		try {
+			super.openSegment(directory);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public long version() {
+		var read = readLock();
+		read.lock();
+		try {
+			return super.version();
+		} finally {
+			read.unlock();
+		}
+	}
+
+	@Override
+	public int addDocument(String location) {
+		lock.writeLock().lock();
+		try {
+			return super.addDocument(location);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void add(String word, int document, int position) {
+		lock.writeLock().lock();
+		try {
+			super.add(word, document, position);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	@Override
 	public void add(String word, String location, int position) {
 		lock.writeLock().lock();
@@ -47,161 +151,251 @@ public class MultiThreadedInvertedIndex extends InvertedIndex {
 		}
 	}
 
+	@Override
+	public boolean removeDocument(String location) {
+		lock.writeLock().lock();
+		try {
+			return super.removeDocument(location);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void removeDocuments(Collection<String> locations) {
+		lock.writeLock().lock();
+		try {
+			super.removeDocuments(locations);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void replaceDocuments(Collection<String> locations, InvertedIndex other) {
+		lock.writeLock().lock();
+		try {
+			super.replaceDocuments(locations, other);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	@Override
 	public void writeIndex(Path path) throws IOException {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			super.writeIndex(path);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public Map<String, Integer> getWordCount() {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return Collections.unmodifiableMap(super.getWordCount());
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public String toString() {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.toString();
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public int numWords() {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.numWords();
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public boolean hasWord(String word) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.hasWord(word);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public boolean hasLocation(String word, String location) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.hasLocation(word, location);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public Set<String> viewLocations(String word) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			// TODO return super.viewLocations(word);
 			return Collections.unmodifiableSet(super.viewLocations(word));
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public boolean hasPosition(String word, String location, int position) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.hasPosition(word, location, position);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public Set<Integer> viewPositions(String word, String location) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			// TODO Just super call
 			return Collections.unmodifiableSet(super.viewPositions(word, location));
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public boolean hasCount(String location) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.hasCount(location);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public Map<String, Integer> viewCount() {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			// TODO Return super
 			return Collections.unmodifiableMap(super.viewCount());
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public int getCount(String location) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.getCount(location);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public List<SearchResult> exactSearch(Set<String> queryWords) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.exactSearch(queryWords);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	@Override
 	public List<SearchResult> partialSearch(Set<String> queryWords) {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.partialSearch(queryWords);
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> phraseSearch(List<String> phrase, int limit) {
+		var read = readLock();
+		read.lock();
+		try {
+			return super.phraseSearch(phrase, limit);
+		} finally {
+			read.unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> proximitySearch(List<String> words, int distance, int limit) {
+		var read = readLock();
+		read.lock();
+		try {
+			return super.proximitySearch(words, distance, limit);
+		} finally {
+			read.unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> booleanSearch(Set<String> required, Set<String> optional, Set<String> excluded, int limit, Scorer scorer) {
+		var read = readLock();
+		read.lock();
+		try {
+			return super.booleanSearch(required, optional, excluded, limit, scorer);
+		} finally {
+			read.unlock();
+		}
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queryWords, boolean partialSearch, int limit, Scorer scorer) {
+		var read = readLock();
+		read.lock();
+		try {
+			return super.search(queryWords, partialSearch, limit, scorer);
+		} finally {
+			read.unlock();
 		}
 	}
 
 	@Override
 	public Set<String> viewWords() {
-		lock.readLock().lock();
+		var read = readLock();
+		read.lock();
 		try {
 			return super.viewWords();
 		} finally {
-			lock.readLock().unlock();
+			read.unlock();
 		}
 	}
 
 	/**
-	 * Merges another inverted index into this index.
+	 * Merges another inverted index into this index. The documents of the other index are assigned
+	 * document IDs in this index while the write lock is held.
 	 *
 	 * @param other the inverted index to merge into this one
 	 */
@@ -214,4 +408,21 @@ public class MultiThreadedInvertedIndex extends InvertedIndex {
 			lock.writeLock().unlock();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * A lock that never blocks, used for reads once the index is frozen.
+	 */
+	private static class Unlocked implements MultiReaderLock.SimpleLock {
+		/** Constructs the lock. Use {@link #UNLOCKED} instead, since it has no state. */
+		private Unlocked() {
+		}
+
+		@Override
+		public void lock() {
+		}
+
+		@Override
+		public void unlock() {
+		}
+	}
+}
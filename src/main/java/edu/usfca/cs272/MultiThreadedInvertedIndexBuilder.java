@@ -1,15 +1,31 @@
 package edu.usfca.cs272;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
 
 /**
  * Builds a multi-threaded inverted index from text files. This class processes
  * directories and individual files using a work queue to distribute tasks across multiple threads
  */
 public class MultiThreadedInvertedIndexBuilder {
+	/**
+	 * The maximum number of file and directory tasks queued at once. Once this many are waiting, directory tasks
+	 * index the files and list the subdirectories they find themselves instead of queueing more, so memory stays
+	 * flat on huge trees.
+	 */
+	public static final int MAX_QUEUED_TASKS = 1024;
+
 	/**
 	 * Processes and indexes the contents of a file into a multi-threaded inverted index
 	 */
@@ -24,6 +40,11 @@ public class MultiThreadedInvertedIndexBuilder {
 		 */
 		private final MultiThreadedInvertedIndex index;
 
+		/**
+		 * limiter The limiter to acquire while stemming, or null to stem without a limit
+		 */
+		private final Semaphore limiter;
+
 		/**
 		 * Constructs a new FileTask for processing a specific file.
 		 *
@@ -31,14 +52,27 @@ public class MultiThreadedInvertedIndexBuilder {
 		 * @param index the MultiThreadedInvertedIndex instance where the processed data will be added
 		 */
 		public FileTask(Path file, MultiThreadedInvertedIndex index) {
+			this(file, index, null);
+		}
+
+		/**
+		 * Constructs a new FileTask for processing a specific file that only stems while holding a permit of the
+		 * limiter provided.
+		 *
+		 * @param file the path to the file that will be processed by this task
+		 * @param index the MultiThreadedInvertedIndex instance where the processed data will be added
+		 * @param limiter the limiter to acquire while stemming, or null to stem without a limit
+		 */
+		public FileTask(Path file, MultiThreadedInvertedIndex index, Semaphore limiter) {
 			this.file = file;
 			this.index = index;
+			this.limiter = limiter;
 		}
 
 		@Override
 		public void run() {
 			try {
-				processFile(file, index);
+				processFile(file, index, limiter);
 			} catch (IOException e) {
 				// TODO throw new UncheckedIOException(e);
 				System.err.println("Error processing file: " + file);
@@ -46,6 +80,180 @@ public class MultiThreadedInvertedIndexBuilder {
 		}
 	}
 
+	/**
+	 * Lists a directory, queueing a task for each subdirectory and each text file found
+	 */
+	public static class DirectoryTask implements Runnable {
+		/**
+		 * directory The directory to list
+		 */
+		private final Path directory;
+
+		/**
+		 * index The multi-threaded inverted index to which the indexed words are added
+		 */
+		private final MultiThreadedInvertedIndex index;
+
+		/**
+		 * workQueue The work queue to queue the tasks of the directory entries with
+		 */
+		private final TaskQueue workQueue;
+
+		/**
+		 * backlog The permits for queueing file and directory tasks
+		 */
+		private final Semaphore backlog;
+
+		/**
+		 * stats The statistics to record the directory and its files in
+		 */
+		private final BuildStats stats;
+
+		/**
+		 * Constructs a new DirectoryTask for listing a specific directory.
+		 *
+		 * @param directory the directory to list
+		 * @param index the MultiThreadedInvertedIndex instance where the processed data will be added
+		 * @param workQueue the work queue to queue the tasks of the directory entries with
+		 * @param backlog the permits for queueing file and directory tasks
+		 * @param stats the statistics to record the directory and its files in
+		 */
+		public DirectoryTask(Path directory, MultiThreadedInvertedIndex index, TaskQueue workQueue, Semaphore backlog, BuildStats stats) {
+			this.directory = directory;
+			this.index = index;
+			this.workQueue = workQueue;
+			this.backlog = backlog;
+			this.stats = stats;
+		}
+
+		@Override
+		public void run() {
+			try {
+				processDirectory(directory, index, workQueue, backlog, stats);
+			} catch (IOException e) {
+				System.err.println("Error processing directory: " + directory);
+			}
+		}
+	}
+
+	/**
+	 * Builds a local index for a range of files by splitting the range in half, building both halves in parallel,
+	 * and merging the right half into the left. Local indexes are therefore merged pairwise in a tree by the
+	 * worker threads instead of one at a time into the shared index.
+	 */
+	public static class ReduceTask extends RecursiveTask<InvertedIndex> {
+		/** Unique ID used for serialization */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The files to index, which are not serialized since tasks only ever run in the pool that forked them
+		 */
+		private final transient List<Path> files;
+
+		/**
+		 * The index of the first file in the range
+		 */
+		private final int start;
+
+		/**
+		 * The index after the last file in the range
+		 */
+		private final int end;
+
+		/**
+		 * Whether the local indexes store positions as compressed gaps
+		 */
+		private final boolean compressed;
+
+		/**
+		 * Constructs a new ReduceTask for a range of files.
+		 *
+		 * @param files the files to index
+		 * @param start the index of the first file in the range
+		 * @param end the index after the last file in the range
+		 * @param compressed true to store positions as compressed gaps
+		 */
+		public ReduceTask(List<Path> files, int start, int end, boolean compressed) {
+			this.files = files;
+			this.start = start;
+			this.end = end;
+			this.compressed = compressed;
+		}
+
+		@Override
+		protected InvertedIndex compute() {
+			if (end - start <= 1) {
+				InvertedIndex local = new InvertedIndex(compressed);
+
+				if (start < end) {
+					Path file = files.get(start);
+					try {
+						processLocal(file, local);
+					} catch (IOException e) {
+						System.err.println("Error processing file: " + file);
+					}
+				}
+
+				return local;
+			}
+
+			int middle = (start + end) >>> 1;
+			ReduceTask left = new ReduceTask(files, start, middle, compressed);
+			left.fork();
+
+			InvertedIndex right = new ReduceTask(files, middle, end, compressed).compute();
+			InvertedIndex merged = left.join();
+			merged.combine(right);
+			return merged;
+		}
+	}
+
+	/**
+	 * Builds an index from the specified path by merging the local index of every file pairwise in a fork/join
+	 * pool and publishing only the final result to the shared index, so the shared index is locked once instead
+	 * of once per file.
+	 *
+	 * @param path The path to the directory or file to index.
+	 * @param index The multi-threaded inverted index to which the indexed words are added.
+	 * @param threads The number of worker threads to merge with.
+	 * @throws IOException If an I/O error occurs accessing the directory.
+	 * @see ReduceTask
+	 */
+	public static void reduceIndex(Path path, MultiThreadedInvertedIndex index, int threads) throws IOException {
+		List<Path> files = new ArrayList<>();
+
+		if (Files.isDirectory(path)) {
+			listFiles(path, files);
+		} else if (InvertedIndexBuilder.isTextFile(path)) {
+			files.add(path);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			index.combine(pool.invoke(new ReduceTask(files, 0, files.size(), index.isCompressed())));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Recursively collects every text file within a directory.
+	 *
+	 * @param directory The directory path to process.
+	 * @param files The list to add the text files to.
+	 * @throws IOException If an I/O error occurs while accessing the directory.
+	 */
+	public static void listFiles(Path directory, List<Path> files) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path entry : stream) {
+				if (Files.isDirectory(entry)) {
+					listFiles(entry, files);
+				} else if (InvertedIndexBuilder.isTextFile(entry)) {
+					files.add(entry);
+				}
+			}
+		}
+	}
 
 	/**
 	 * Recursively builds an index from the specified path using the provided multi-threaded index.
@@ -57,47 +265,235 @@ public class MultiThreadedInvertedIndexBuilder {
 	 * @param workQueue The work queue used for managing concurrent tasks.
 	 * @throws IOException If an I/O error occurs accessing the directory or files.
 	 */
-	public static void buildIndex(Path path, MultiThreadedInvertedIndex index, WorkQueue workQueue) throws IOException {
-		if (Files.isDirectory(path)) {
-			processDirectory(path, index, workQueue);
-		} else if (InvertedIndexBuilder.isTextFile(path)) {
-			workQueue.execute(new FileTask(path, index));
+	public static void buildIndex(Path path, MultiThreadedInvertedIndex index, TaskQueue workQueue) throws IOException {
+		buildIndex(path, index, workQueue, new BuildStats());
+	}
+
+	/**
+	 * Recursively builds an index from the specified path using the provided multi-threaded index, recording the
+	 * time spent listing directories and indexing files. The path itself is listed on the calling thread, and
+	 * every subdirectory is listed by its own {@link DirectoryTask}, so listing a large tree is spread across
+	 * the worker threads too.
+	 *
+	 * @param path The path to the directory or file to index.
+	 * @param index The multi-threaded inverted index to which the indexed words are added.
+	 * @param workQueue The work queue used for managing concurrent tasks.
+	 * @param stats The statistics to record the build in.
+	 * @throws IOException If an I/O error occurs accessing the directory.
+	 */
+	public static void buildIndex(Path path, MultiThreadedInvertedIndex index, TaskQueue workQueue, BuildStats stats) throws IOException {
+		long start = System.nanoTime();
+		Semaphore backlog = new Semaphore(MAX_QUEUED_TASKS);
+
+		try {
+			if (Files.isDirectory(path)) {
+				processDirectory(path, index, workQueue, backlog, stats);
+			} else if (InvertedIndexBuilder.isTextFile(path)) {
+				queueFile(path, index, workQueue, backlog, stats);
+			}
+		} finally {
+			workQueue.finish();
+			stats.addElapsed(System.nanoTime() - start);
 		}
-		workQueue.finish();
 	}
 
 	/**
 	 * Recursively processes directories to index all eligible files using a multi-threaded approach.
-	 * Each directory entry is checked; if it's a directory, this method calls itself recursively.
+	 * Each directory entry is checked; if it's a directory, it is listed by a new {@link DirectoryTask}.
 	 *
 	 * @param directory The directory path to process.
 	 * @param index The multi-threaded inverted index to which the data is added.
 	 * @param workQueue The work queue used for managing concurrent tasks.
 	 * @throws IOException If an I/O error occurs while accessing the directory or its files.
 	 */
-	public static void processDirectory(Path directory, MultiThreadedInvertedIndex index, WorkQueue workQueue) throws IOException {
+	public static void processDirectory(Path directory, MultiThreadedInvertedIndex index, TaskQueue workQueue) throws IOException {
+		processDirectory(directory, index, workQueue, new Semaphore(MAX_QUEUED_TASKS), new BuildStats());
+	}
+
+	/**
+	 * Lists a single directory, queueing a {@link DirectoryTask} for each subdirectory and a {@link FileTask} for
+	 * each text file. If the backlog of queued tasks is full, the file is indexed or the subdirectory is listed
+	 * on the calling thread instead.
+	 *
+	 * @param directory The directory path to process.
+	 * @param index The multi-threaded inverted index to which the data is added.
+	 * @param workQueue The work queue used for managing concurrent tasks.
+	 * @param backlog The permits for queueing file and directory tasks.
+	 * @param stats The statistics to record the directory and its files in.
+	 * @throws IOException If an I/O error occurs while accessing the directory.
+	 */
+	public static void processDirectory(Path directory, MultiThreadedInvertedIndex index, TaskQueue workQueue, Semaphore backlog, BuildStats stats) throws IOException {
+		long start = System.nanoTime();
+		long nested = 0;
+
 		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
 			for (Path entry : stream) {
 				if (Files.isDirectory(entry)) {
-					processDirectory(entry, index, workQueue);
+					nested += queueDirectory(entry, index, workQueue, backlog, stats);
 				} else if (InvertedIndexBuilder.isTextFile(entry)) {
-					workQueue.execute(new FileTask(entry, index));
+					nested += queueFile(entry, index, workQueue, backlog, stats);
 				}
 			}
+		} finally {
+			stats.addDirectory(System.nanoTime() - start - nested);
 		}
 	}
 
 	/**
-	 * Processes a single file by indexing its content. It extracts words using a stemming process and adds them to the inverted index,
-	 * along with the file's path and a starting position for each word.
+	 * Queues a task to list a subdirectory, or lists it on the calling thread if the backlog of queued tasks is
+	 * full. A queued task holds its permit until the subdirectory is listed.
+	 *
+	 * @param directory The subdirectory to list.
+	 * @param index The multi-threaded inverted index to which the data is added.
+	 * @param workQueue The work queue used for managing concurrent tasks.
+	 * @param backlog The permits for queueing file and directory tasks.
+	 * @param stats The statistics to record the subdirectory and its files in.
+	 * @return the nanoseconds spent listing the subdirectory on the calling thread, or 0 if it was queued
+	 */
+	private static long queueDirectory(Path directory, MultiThreadedInvertedIndex index, TaskQueue workQueue, Semaphore backlog, BuildStats stats) {
+		DirectoryTask task = new DirectoryTask(directory, index, workQueue, backlog, stats);
+
+		if (backlog.tryAcquire()) {
+			workQueue.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					backlog.release();
+				}
+			});
+			return 0;
+		}
+
+		long start = System.nanoTime();
+		task.run();
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Queues a task to index a file, or indexes the file on the calling thread if the backlog of queued tasks is
+	 * full. Running the task on the calling thread slows down the listing of directories until the workers
+	 * catch up, without ever blocking a worker thread.
+	 *
+	 * @param file The file to be processed.
+	 * @param index The multi-threaded inverted index to which the data is added.
+	 * @param workQueue The work queue used for managing concurrent tasks.
+	 * @param backlog The permits for queueing file and directory tasks.
+	 * @param stats The statistics to record the file in.
+	 * @return the nanoseconds spent indexing the file on the calling thread, or 0 if it was queued
+	 */
+	private static long queueFile(Path file, MultiThreadedInvertedIndex index, TaskQueue workQueue, Semaphore backlog, BuildStats stats) {
+		FileTask task = newFileTask(file, index, workQueue);
+		stats.addFile();
+
+		if (backlog.tryAcquire()) {
+			workQueue.execute(() -> {
+				try {
+					runTimed(task, stats);
+				} finally {
+					backlog.release();
+				}
+			});
+			return 0;
+		}
+
+		return runTimed(task, stats);
+	}
+
+	/**
+	 * Runs a file task and records the time spent indexing.
+	 *
+	 * @param task The task to run.
+	 * @param stats The statistics to record the time in.
+	 * @return the nanoseconds the task took
+	 */
+	private static long runTimed(FileTask task, BuildStats stats) {
+		long start = System.nanoTime();
+		task.run();
+
+		long elapsed = System.nanoTime() - start;
+		stats.addIndexing(elapsed);
+		return elapsed;
+	}
+
+	/**
+	 * Creates the task to index a file with the work queue provided. Files indexed on a {@link VirtualThreadQueue}
+	 * are stemmed while holding a permit of the queue's limiter.
+	 *
+	 * @param file The file to be processed.
+	 * @param index The multi-threaded inverted index to which the data is added.
+	 * @param workQueue The work queue the task will be executed with.
+	 * @return the task to execute
+	 */
+	private static FileTask newFileTask(Path file, MultiThreadedInvertedIndex index, TaskQueue workQueue) {
+		Semaphore limiter = workQueue instanceof VirtualThreadQueue virtual ? virtual.getLimiter() : null;
+		return new FileTask(file, index, limiter);
+	}
+
+	/**
+	 * Processes a single file by indexing its content. It extracts words using a stemming process and adds them to a local
+	 * inverted index, along with the file's document ID and a starting position for each word. The local document ID is
+	 * translated to a document ID of the shared index when the local index is combined into it.
 	 *
 	 * @param file The file to be processed.
 	 * @param invertedIndex The inverted index to which the extracted words and their positions are added.
 	 * @throws IOException If an I/O error occurs while reading from the file.
 	 */
 	public static void processFile(Path file, MultiThreadedInvertedIndex invertedIndex) throws IOException {
-		InvertedIndex local = new InvertedIndex();
-		InvertedIndexBuilder.processFile(file, local);
+		InvertedIndex local = new InvertedIndex(invertedIndex.isCompressed());
+		processLocal(file, local);
+		invertedIndex.combine(local);
+	}
+
+	/**
+	 * Indexes a single file into a local index that is not shared with other threads. Large files are
+	 * memory-mapped and split into chunks that are parsed and stemmed in parallel.
+	 *
+	 * @param file The file to be processed.
+	 * @param local The local inverted index to which the extracted words and their positions are added.
+	 * @throws IOException If an I/O error occurs while reading from the file.
+	 * @see ChunkedFileIndexer
+	 */
+	public static void processLocal(Path file, InvertedIndex local) throws IOException {
+		if (ChunkedFileIndexer.isLarge(Files.size(file))) {
+			ChunkedFileIndexer.processFile(file, local);
+		} else {
+			InvertedIndexBuilder.processFile(file, local);
+		}
+	}
+
+	/**
+	 * Processes a single file like {@link #processFile(Path, MultiThreadedInvertedIndex)}, but reads the whole
+	 * file into memory first and only holds a permit of the limiter while parsing and stemming it. Any number of
+	 * files may be read at once, while the CPU-bound stemming is bounded by the limiter.
+	 *
+	 * @param file The file to be processed.
+	 * @param invertedIndex The inverted index to which the extracted words and their positions are added.
+	 * @param limiter The limiter to acquire while stemming, or null to stem without a limit.
+	 * @throws IOException If an I/O error occurs while reading from the file or the thread is interrupted.
+	 */
+	public static void processFile(Path file, MultiThreadedInvertedIndex invertedIndex, Semaphore limiter) throws IOException {
+		if (limiter == null || ChunkedFileIndexer.isLarge(Files.size(file))) {
+			processFile(file, invertedIndex);
+			return;
+		}
+
+		InvertedIndex local = new InvertedIndex(invertedIndex.isCompressed());
+		int document = local.addDocument(file.toString());
+		String text = Files.readString(file, StandardCharsets.UTF_8);
+
+		try {
+			limiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to stem: " + file);
+		}
+
+		try {
+			InvertedIndexBuilder.processReader(new BufferedReader(new StringReader(text)), document, local);
+		} finally {
+			limiter.release();
+		}
+
 		invertedIndex.combine(local);
 	}
 }
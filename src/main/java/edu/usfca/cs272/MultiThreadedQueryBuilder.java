@@ -8,6 +8,10 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -54,13 +58,15 @@ public class MultiThreadedQueryBuilder implements QueryInterface{
 	/**
 	 * The work queue to use for managing concurrent tasks
 	 */
-	private final WorkQueue workQueue;
+	private final TaskQueue workQueue;
 
 	/**
 	 * A map of search query strings to lists of search results, each key represents a unique search query
 	 * that has been processed, and its corresponding value is a list of search results sorted by relevance.
+	 * The map is concurrent so query tasks store results without contending on a shared monitor, and it may be
+	 * read while queries are still running. It is only sorted when the results are written.
 	 */
-	private final TreeMap<String, List<InvertedIndex.SearchResult>> results;
+	private final ConcurrentHashMap<String, List<InvertedIndex.SearchResult>> results;
 
 	/**
 	 * The inverted index used for searching documents.
@@ -73,6 +79,31 @@ public class MultiThreadedQueryBuilder implements QueryInterface{
 	 */
 	private final boolean partialSearch;
 
+	/**
+	 * The maximum number of search results kept for each query, or 0 to keep every result.
+	 */
+	private final int limit;
+
+	/**
+	 * The cache of results shared with other query builders, or null to always search the index.
+	 */
+	private final QueryCache cache;
+
+	/**
+	 * The scorer used to rank the results of ordinary queries.
+	 */
+	private final Scorer scorer;
+
+	/**
+	 * Maps each stemmed query being searched to a future completed once its results are stored.
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<Void>> inFlight;
+
+	/**
+	 * The number of queries that waited for another thread searching the same stemmed query.
+	 */
+	private final LongAdder coalesced;
+
 	/**
 	 * Constructs a new QueryBuilder instance configured to use a specific inverted index and search type.
 	 *
@@ -80,21 +111,75 @@ public class MultiThreadedQueryBuilder implements QueryInterface{
 	 * @param partialSearch true to enable partial match searches, false for exact match searches
 	 * @param workQueue the work queue to use for managing concurrent tasks
 	 */
-	public MultiThreadedQueryBuilder(MultiThreadedInvertedIndex index, boolean partialSearch, WorkQueue workQueue) {
-		this.results = new TreeMap<>();
+	public MultiThreadedQueryBuilder(MultiThreadedInvertedIndex index, boolean partialSearch, TaskQueue workQueue) {
+		this(index, partialSearch, workQueue, 0);
+	}
+
+	/**
+	 * Constructs a new QueryBuilder instance that only keeps the best search results of each query.
+	 *
+	 * @param index the inverted index to use for generating search results
+	 * @param partialSearch true to enable partial match searches, false for exact match searches
+	 * @param workQueue the work queue to use for managing concurrent tasks
+	 * @param limit the maximum number of search results kept for each query, or 0 or less to keep every result
+	 */
+	public MultiThreadedQueryBuilder(MultiThreadedInvertedIndex index, boolean partialSearch, TaskQueue workQueue, int limit) {
+		this(index, partialSearch, workQueue, limit, null);
+	}
+
+	/**
+	 * Constructs a new QueryBuilder instance that looks up results in a cache before searching the index.
+	 *
+	 * @param index the inverted index to use for generating search results
+	 * @param partialSearch true to enable partial match searches, false for exact match searches
+	 * @param workQueue the work queue to use for managing concurrent tasks
+	 * @param limit the maximum number of search results kept for each query, or 0 or less to keep every result
+	 * @param cache the cache of results of the same index, or null to always search the index
+	 */
+	public MultiThreadedQueryBuilder(MultiThreadedInvertedIndex index, boolean partialSearch, TaskQueue workQueue, int limit, QueryCache cache) {
+		this(index, partialSearch, workQueue, limit, cache, FrequencyScorer.INSTANCE);
+	}
+
+	/**
+	 * Constructs a new QueryBuilder instance that ranks the results of ordinary queries with a scorer. Phrase and
+	 * proximity queries are always ranked by the frequency of their matches.
+	 *
+	 * @param index the inverted index to use for generating search results
+	 * @param partialSearch true to enable partial match searches, false for exact match searches
+	 * @param workQueue the work queue to use for managing concurrent tasks
+	 * @param limit the maximum number of search results kept for each query, or 0 or less to keep every result
+	 * @param cache the cache of results of the same index, or null to always search the index
+	 * @param scorer the scorer to rank the results with
+	 */
+	public MultiThreadedQueryBuilder(MultiThreadedInvertedIndex index, boolean partialSearch, TaskQueue workQueue, int limit, QueryCache cache, Scorer scorer) {
+		this.results = new ConcurrentHashMap<>();
 		this.index = index;
 		this.partialSearch = partialSearch;
 		this.workQueue = workQueue;
+		this.limit = Math.max(limit, 0);
+		this.cache = cache;
+		this.scorer = scorer;
+		this.inFlight = new ConcurrentHashMap<>();
+		this.coalesced = new LongAdder();
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public List<InvertedIndex.SearchResult> search(Set<String> queryWords, boolean partial, int k) {
+		return cache != null ? cache.search(queryWords, partial, k, scorer) : index.search(queryWords, partial, k, scorer);
 	}
 
 	/**
-	 * Returns the map of search results.
+	 * Returns the processed queries, sorted. Safe to call while queries are still running.
 	 *
-	 * @return the map containing the results of processed search queries
+	 * @return a sorted snapshot of the processed queries
 	 */
 	public Set<String> getQueries() {
-		// TODO synchronized (results) {
-		return Collections.unmodifiableSet(results.keySet());
+		return Collections.unmodifiableSet(new TreeSet<>(results.keySet()));
 	}
 
 	/**
@@ -105,7 +190,6 @@ public class MultiThreadedQueryBuilder implements QueryInterface{
 	 */
 	public List<InvertedIndex.SearchResult> getResults(String query) {
 		// TODO Re-stem and join here too (do not reuse a stemmer object)
-		// TODO synchronized (results) {
 		List<MultiThreadedInvertedIndex.SearchResult> resultsList = results.get(query);
 		if (resultsList != null) {
 			return Collections.unmodifiableList(resultsList);
@@ -130,13 +214,13 @@ public class MultiThreadedQueryBuilder implements QueryInterface{
 	 * @throws IOException If an error occurs during writing to the file
 	 */
 	public void writeResults(Path path) throws IOException{
-		synchronized (results) {
-			JsonWriter.writeSearchResults(results, path);
-		}
+		JsonWriter.writeSearchResults(new TreeMap<>(results), path);
 	}
 
 	/**
-	 * Processes a single query line and updates the results map.
+	 * Processes a single query line and updates the results map. If another thread is already searching the
+	 * same stemmed query, waits for its results instead. If that search fails, the failure is reported by the
+	 * thread that searched, and the waiting threads search the query again themselves.
 	 *
 	 * @param line The query line to process
 	 */
@@ -146,20 +230,84 @@ public class MultiThreadedQueryBuilder implements QueryInterface{
 		
 		move the code below into the run method of the task...
 		*/
-		TreeSet<String> queryWords = FileStemmer.uniqueStems(line);
-		String key = String.join(" ", queryWords);
+		PhraseQuery phrase = PhraseQuery.parse(line, StemCache.SHARED);
+		BooleanQuery operators = phrase == null ? BooleanQuery.parse(line, StemCache.SHARED) : null;
+		TreeSet<String> queryWords = phrase == null && operators == null ? FileStemmer.uniqueStems(line, StemCache.SHARED) : null;
+		String key = phrase != null ? phrase.getKey() : operators != null ? operators.getKey() : String.join(" ", queryWords);
+
+		if (queryWords != null && queryWords.isEmpty()) {
+			return;
+		}
+
+		while (!results.containsKey(key)) {
+			// only the first thread searches a key, and threads with the same key wait for its results
+			CompletableFuture<Void> flight = new CompletableFuture<>();
+			CompletableFuture<Void> existing = inFlight.putIfAbsent(key, flight);
+
+			if (existing != null) {
+				coalesced.increment();
 
-		synchronized (results) {
-			if (queryWords.isEmpty() || results.containsKey(key)) {
-				return;
+				try {
+					existing.join();
+				} catch (CompletionException e) {
+					// the searching thread failed and reported its own error, so search the key again
+					log.debug("Retrying query after another thread failed: {}", key);
+				}
+
+				continue;
+			}
+
+			Throwable failure = null;
+
+			try {
+				// the previous flight of this key may have finished since the first check
+				if (!results.containsKey(key)) {
+					results.put(key, search(phrase, operators, queryWords));
+				}
+			} catch (RuntimeException | Error e) {
+				failure = e;
+				throw e;
+			} finally {
+				inFlight.remove(key, flight);
+
+				if (failure == null) {
+					flight.complete(null);
+				} else {
+					flight.completeExceptionally(failure);
+				}
 			}
 		}
+	}
 
-		List<MultiThreadedInvertedIndex.SearchResult> searchResults = index.search(queryWords, partialSearch);
+	/**
+	 * Searches the cache or the index for a phrase or proximity query, a boolean query, or for the stemmed words
+	 * of an ordinary query.
+	 *
+	 * @param phrase the positional query, or null for another query
+	 * @param operators the boolean query, or null for another query
+	 * @param queryWords the stemmed words of an ordinary query
+	 * @return the sorted search results
+	 */
+	private List<InvertedIndex.SearchResult> search(PhraseQuery phrase, BooleanQuery operators, Set<String> queryWords) {
+		if (phrase != null) {
+			return cache != null ? cache.search(phrase, limit) : phrase.search(index, limit);
+		}
 
-		synchronized (results) {
-			this.results.put(key, searchResults);
+		if (operators != null) {
+			return cache != null ? cache.search(operators, limit, scorer) : operators.search(index, limit, scorer);
 		}
+
+		return search(queryWords, partialSearch, limit);
+	}
+
+	/**
+	 * Returns the number of queries that waited for another thread searching the same stemmed query instead of
+	 * searching the index themselves.
+	 *
+	 * @return the number of coalesced queries
+	 */
+	public long getCoalesced() {
+		return coalesced.sum();
 	}
 
 	/**
@@ -0,0 +1,125 @@
+package edu.usfca.cs272;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * A query line that searches word positions instead of word counts. A line
+ * holding only quoted words, such as {@code "quick brown fox"}, is a phrase
+ * query matching the stemmed words at consecutive positions. A quoted line
+ * followed by a tilde and a distance, such as {@code "quick fox"~3}, is a
+ * proximity query matching every word within that many positions of the first
+ * word. Any other line is an ordinary query.
+ *
+ * <p>
+ * Positional queries always match whole words, even when partial search is
+ * enabled for ordinary queries.
+ */
+public class PhraseQuery {
+	/** Matches a quoted line with an optional distance. */
+	private static final Pattern QUOTED = Pattern.compile("^\\s*\"([^\"]*)\"(?:~(\\d{1,9}))?\\s*$");
+
+	/** The stemmed words of the query, in order. */
+	private final List<String> words;
+
+	/** The greatest distance between the first word and any other word, or -1 for a phrase. */
+	private final int distance;
+
+	/**
+	 * Constructs a positional query.
+	 *
+	 * @param words the stemmed words of the query, in order
+	 * @param distance the greatest distance between the first word and any
+	 *   other word, or -1 for a phrase
+	 */
+	private PhraseQuery(List<String> words, int distance) {
+		this.words = words;
+		this.distance = distance;
+	}
+
+	/**
+	 * Parses a query line into a positional query.
+	 *
+	 * @param line the query line
+	 * @param stemmer the stemmer to use
+	 * @return the positional query, or null if the line is not quoted or has no
+	 *   words
+	 */
+	public static PhraseQuery parse(String line, Stemmer stemmer) {
+		Matcher matcher = QUOTED.matcher(line);
+
+		if (!matcher.matches()) {
+			return null;
+		}
+
+		List<String> words = FileStemmer.listStems(matcher.group(1), stemmer);
+
+		if (words.isEmpty()) {
+			return null;
+		}
+
+		int distance = matcher.group(2) == null ? -1 : Integer.parseInt(matcher.group(2));
+		return new PhraseQuery(Collections.unmodifiableList(words), distance);
+	}
+
+	/**
+	 * Determines whether this query is a phrase query rather than a proximity
+	 * query.
+	 *
+	 * @return true if the words must be at consecutive positions
+	 */
+	public boolean isPhrase() {
+		return distance < 0;
+	}
+
+	/**
+	 * Returns the stemmed words of this query, in order.
+	 *
+	 * @return an unmodifiable list of the words
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 * Returns the greatest distance between the first word and any other word.
+	 *
+	 * @return the distance, or -1 for a phrase query
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Returns the key of this query in the search results, which is the quoted
+	 * stemmed words followed by the distance of a proximity query.
+	 *
+	 * @return the key of this query
+	 */
+	public String getKey() {
+		String quoted = "\"" + String.join(" ", words) + "\"";
+		return isPhrase() ? quoted : quoted + "~" + distance;
+	}
+
+	/**
+	 * Searches an index for this query.
+	 *
+	 * @param index the index to search
+	 * @param limit the maximum number of results, or 0 or less for every result
+	 * @return the sorted search results
+	 * @see InvertedIndex#phraseSearch(List, int)
+	 * @see InvertedIndex#proximitySearch(List, int, int)
+	 */
+	public List<InvertedIndex.SearchResult> search(InvertedIndex index, int limit) {
+		return isPhrase() ? index.phraseSearch(words, limit) : index.proximitySearch(words, distance, limit);
+	}
+
+	@Override
+	public String toString() {
+		return getKey();
+	}
+}
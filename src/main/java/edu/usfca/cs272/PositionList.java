@@ -0,0 +1,213 @@
+package edu.usfca.cs272;
+
+import java.util.AbstractSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Stores the positions of a single word within a single document as a sorted set
+ * of primitive {@code int} values. Positions are appended in increasing order
+ * while a file is being indexed; out-of-order positions (for example when
+ * combining two indexes) are merged into place.
+ *
+ * <p>
+ * Two layouts are available. An {@link ArrayPositionList} stores each position in
+ * a growable {@code int[]} and supports binary search, while a
+ * {@link CompressedPositionList} stores the gaps between positions as
+ * variable-byte integers and decodes them as the list is iterated. Approximate
+ * heap costs on a 64-bit JVM with compressed pointers are:
+ *
+ * <table>
+ * <caption>Approximate bytes used by a list of positions</caption>
+ * <tr><th>Layout</th><th>Per position</th><th>Per list</th></tr>
+ * <tr><td>{@code TreeSet<Integer>}</td><td>56</td><td>90</td></tr>
+ * <tr><td>{@link ArrayPositionList}</td><td>4 to 6</td><td>40</td></tr>
+ * <tr><td>{@link CompressedPositionList}</td><td>1 to 2</td><td>48</td></tr>
+ * </table>
+ *
+ * <p>
+ * This class implements {@link java.util.Set} so it may be viewed and written as
+ * a collection of numbers, but positions may only be added through the primitive
+ * {@link #add(int)} method.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ */
+public abstract class PositionList extends AbstractSet<Integer> {
+	/**
+	 * Constructs an empty position list. Use {@link #create(boolean)} to choose
+	 * the layout.
+	 */
+	protected PositionList() {
+	}
+
+	/**
+	 * Creates an empty position list using the layout requested.
+	 *
+	 * @param compressed true to create a {@link CompressedPositionList}, false to
+	 *   create an {@link ArrayPositionList}
+	 * @return an empty position list
+	 */
+	public static PositionList create(boolean compressed) {
+		return compressed ? new CompressedPositionList() : new ArrayPositionList();
+	}
+
+	/**
+	 * Determines whether this list uses the compressed layout.
+	 *
+	 * @return true if positions are stored as compressed gaps
+	 */
+	public abstract boolean isCompressed();
+
+	/**
+	 * Adds a position to this list if it is not already present, keeping the list
+	 * sorted.
+	 *
+	 * @param position the position to add
+	 * @return true if the position was added, false if it was already present
+	 */
+	public abstract boolean add(int position);
+
+	/**
+	 * Returns the largest position in this list.
+	 *
+	 * @return the last position
+	 * @throws NoSuchElementException if this list is empty
+	 */
+	public abstract int last();
+
+	/**
+	 * Shrinks the backing storage so no unused capacity is retained.
+	 */
+	public abstract void trimToSize();
+
+	/**
+	 * Replaces the contents of this list with the sorted positions provided.
+	 *
+	 * @param sorted the positions in increasing order without duplicates
+	 * @param length the number of positions in the array to use
+	 */
+	protected abstract void replace(int[] sorted, int length);
+
+	@Override
+	public abstract PrimitiveIterator.OfInt iterator();
+
+	/**
+	 * Adds all of the positions in another list to this one, keeping this list
+	 * sorted and free of duplicates.
+	 *
+	 * @param other the positions to add
+	 * @return true if this list changed as a result of the call
+	 */
+	public boolean addAll(PositionList other) {
+		if (other.isEmpty()) {
+			return false;
+		}
+
+		// positions from a later part of the file can be appended directly
+		if (isEmpty() || other.first() > last()) {
+			var iterator = other.iterator();
+			while (iterator.hasNext()) {
+				add(iterator.nextInt());
+			}
+			return true;
+		}
+
+		int[] merged = new int[size() + other.size()];
+		var mine = iterator();
+		var theirs = other.iterator();
+		int a = mine.nextInt();
+		int b = theirs.nextInt();
+		int k = 0;
+
+		while (true) {
+			if (a < b) {
+				merged[k++] = a;
+				if (!mine.hasNext()) {
+					merged[k++] = b;
+					break;
+				}
+				a = mine.nextInt();
+			}
+			else if (b < a) {
+				merged[k++] = b;
+				if (!theirs.hasNext()) {
+					merged[k++] = a;
+					break;
+				}
+				b = theirs.nextInt();
+			}
+			else {
+				merged[k++] = a;
+				if (!mine.hasNext() || !theirs.hasNext()) {
+					break;
+				}
+				a = mine.nextInt();
+				b = theirs.nextInt();
+			}
+		}
+
+		while (mine.hasNext()) {
+			merged[k++] = mine.nextInt();
+		}
+
+		while (theirs.hasNext()) {
+			merged[k++] = theirs.nextInt();
+		}
+
+		boolean changed = k != size();
+		replace(merged, k);
+		return changed;
+	}
+
+	/**
+	 * Determines whether this list contains the position.
+	 *
+	 * @param position the position to find
+	 * @return true if the position is in this list
+	 */
+	public boolean contains(int position) {
+		var iterator = iterator();
+
+		while (iterator.hasNext()) {
+			int next = iterator.nextInt();
+
+			if (next >= position) {
+				return next == position;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer position && contains(position.intValue());
+	}
+
+	/**
+	 * Returns the smallest position in this list.
+	 *
+	 * @return the first position
+	 * @throws NoSuchElementException if this list is empty
+	 */
+	public int first() {
+		return iterator().nextInt();
+	}
+
+	/**
+	 * Copies the positions in this list into a new array.
+	 *
+	 * @return the sorted positions
+	 */
+	public int[] toIntArray() {
+		int[] copy = new int[size()];
+		var iterator = iterator();
+
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = iterator.nextInt();
+		}
+
+		return copy;
+	}
+}
@@ -0,0 +1,95 @@
+package edu.usfca.cs272;
+
+/**
+ * A read-only view of the postings of a single word: the documents the word
+ * appears in, sorted by document ID, and the positions of the word within each of
+ * those documents. Postings are accessed by index so that searches can walk them
+ * without creating any objects.
+ */
+public interface Postings {
+	/**
+	 * Returns the number of documents the word appears in.
+	 *
+	 * @return the document frequency of the word
+	 */
+	public int size();
+
+	/**
+	 * Returns the document ID stored at the index.
+	 *
+	 * @param index the index of the posting, between 0 and {@link #size()}
+	 * @return the document ID of the posting
+	 */
+	public int document(int index);
+
+	/**
+	 * Returns the number of times the word appears in the document at the index.
+	 *
+	 * @param index the index of the posting, between 0 and {@link #size()}
+	 * @return the term frequency of the posting
+	 */
+	public int frequency(int index);
+
+	/**
+	 * Returns the positions of the word in the document at the index.
+	 *
+	 * @param index the index of the posting, between 0 and {@link #size()}
+	 * @return the sorted positions of the posting
+	 */
+	public PositionList positions(int index);
+
+	/**
+	 * Finds the index of the document ID in these postings.
+	 *
+	 * @param document the document ID to find
+	 * @return the index of the document if found, otherwise
+	 *   {@code -(insertion point) - 1} as returned by a binary search
+	 */
+	public int find(int document);
+
+	/**
+	 * Finds the first posting at or after an index whose document ID is not less
+	 * than the document ID provided. The search gallops forward from the index in
+	 * doubling steps before searching the last step by bisection, so skipping a
+	 * few postings is cheap and skipping many takes logarithmic time.
+	 *
+	 * @param document the document ID to seek
+	 * @param from the index to start from, between 0 and {@link #size()}
+	 * @return the index of the first posting at or after the start whose
+	 *   document ID is at least the one provided, or {@link #size()} if there is
+	 *   none
+	 */
+	public default int seek(int document, int from) {
+		int size = size();
+
+		if (from >= size || document(from) >= document) {
+			return from;
+		}
+
+		// document(low) is always less than the target
+		int low = from;
+		int high = from + 1;
+		int step = 1;
+
+		while (high < size && document(high) < document) {
+			low = high;
+			step <<= 1;
+			high = from + step;
+		}
+
+		low++;
+		high = Math.min(high, size);
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (document(middle) < document) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+}
@@ -0,0 +1,267 @@
+package edu.usfca.cs272;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Stores the postings of a single word as a sorted array of document IDs with a
+ * parallel array of {@link PositionList} objects. Documents are usually added in
+ * increasing ID order while an index is being built, so adding a posting is
+ * normally an append; other documents are inserted with a binary search.
+ *
+ * Warning: This class is not thread-safe. If multiple threads access this class
+ * concurrently, access must be synchronized externally.
+ */
+public class PostingsList implements Postings {
+	/** The default capacity of a new postings list. */
+	private static final int DEFAULT_CAPACITY = 2;
+
+	/** The sorted document IDs, only the first {@link #size} of which are in use. */
+	private int[] documents;
+
+	/** The positions for the document ID stored at the same index. */
+	private PositionList[] positions;
+
+	/** The number of documents stored in this list. */
+	private int size;
+
+	/** Whether new position lists use the compressed layout. */
+	private final boolean compressed;
+
+	/**
+	 * Constructs an empty postings list.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 * @see PositionList#create(boolean)
+	 */
+	public PostingsList(boolean compressed) {
+		this.documents = new int[DEFAULT_CAPACITY];
+		this.positions = new PositionList[DEFAULT_CAPACITY];
+		this.size = 0;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Adds a position of the word within the document.
+	 *
+	 * @param document the document ID
+	 * @param position the position of the word within the document
+	 * @return true if the position was added, false if it was already present
+	 */
+	public boolean add(int document, int position) {
+		return positionsOf(document).add(position);
+	}
+
+	/**
+	 * Adds all of the postings from another list, translating each of its document
+	 * IDs through the mapping provided. Position lists for documents not already in
+	 * this list are shared rather than copied when they use the same layout.
+	 *
+	 * @param other the postings to add
+	 * @param remap maps the document IDs of the other postings to document IDs of
+	 *   this list
+	 */
+	public void addAll(Postings other, int[] remap) {
+		for (int i = 0; i < other.size(); i++) {
+			int document = remap[other.document(i)];
+			int index = insertionIndex(document);
+
+			if (index >= 0) {
+				positions[index].addAll(other.positions(i));
+			}
+			else {
+				insert(-(index + 1), document, adopt(other.positions(i)));
+			}
+		}
+	}
+
+	/**
+	 * Adds all of the postings from another list like {@link #addAll(Postings, int[])},
+	 * but shifts every position by the offset provided. Used to append the postings
+	 * of a later part of a document that was indexed starting from position 1.
+	 *
+	 * @param other the postings to add
+	 * @param remap maps the document IDs of the other postings to document IDs of
+	 *   this list
+	 * @param offset the amount to add to every position
+	 */
+	public void addAll(Postings other, int[] remap, int offset) {
+		if (offset == 0) {
+			addAll(other, remap);
+			return;
+		}
+
+		for (int i = 0; i < other.size(); i++) {
+			PositionList list = positionsOf(remap[other.document(i)]);
+			var iterator = other.positions(i).iterator();
+
+			while (iterator.hasNext()) {
+				list.add(iterator.nextInt() + offset);
+			}
+		}
+	}
+
+	/**
+	 * Removes the postings of every document in a set from this list in a single
+	 * pass, keeping the remaining postings in order.
+	 *
+	 * @param removed the document IDs to remove
+	 * @return true if any document was in this list
+	 */
+	public boolean removeAll(BitSet removed) {
+		int kept = 0;
+
+		for (int i = 0; i < size; i++) {
+			if (!removed.get(documents[i])) {
+				documents[kept] = documents[i];
+				positions[kept] = positions[i];
+				kept++;
+			}
+		}
+
+		if (kept == size) {
+			return false;
+		}
+
+		Arrays.fill(positions, kept, size, null);
+		size = kept;
+		return true;
+	}
+
+	/**
+	 * Removes the posting of a document from this list.
+	 *
+	 * @param document the document ID to remove
+	 * @return true if the document was in this list
+	 */
+	public boolean remove(int document) {
+		int index = find(document);
+
+		if (index < 0) {
+			return false;
+		}
+
+		System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+		System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+		positions[--size] = null;
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int document(int index) {
+		checkIndex(index);
+		return documents[index];
+	}
+
+	@Override
+	public int frequency(int index) {
+		checkIndex(index);
+		return positions[index].size();
+	}
+
+	@Override
+	public PositionList positions(int index) {
+		checkIndex(index);
+		return positions[index];
+	}
+
+	@Override
+	public int find(int document) {
+		return Arrays.binarySearch(documents, 0, size, document);
+	}
+
+	/**
+	 * Returns the position list of the document, adding an empty one if the
+	 * document is not yet in this list.
+	 *
+	 * @param document the document ID
+	 * @return the positions of the word within the document
+	 */
+	private PositionList positionsOf(int document) {
+		int index = insertionIndex(document);
+
+		if (index >= 0) {
+			return positions[index];
+		}
+
+		PositionList list = PositionList.create(compressed);
+		insert(-(index + 1), document, list);
+		return list;
+	}
+
+	/**
+	 * Returns the position list if it uses the layout of this postings list, or a
+	 * copy of it in that layout otherwise.
+	 *
+	 * @param list the position list to adopt
+	 * @return a position list using the layout of this postings list
+	 */
+	private PositionList adopt(PositionList list) {
+		if (list.isCompressed() == compressed) {
+			return list;
+		}
+
+		PositionList copy = PositionList.create(compressed);
+		copy.addAll(list);
+		return copy;
+	}
+
+	/**
+	 * Finds the document ID, checking the last posting first since documents are
+	 * usually added in increasing order.
+	 *
+	 * @param document the document ID to find
+	 * @return the index of the document if found, otherwise
+	 *   {@code -(insertion point) - 1}
+	 */
+	private int insertionIndex(int document) {
+		if (size == 0 || document > documents[size - 1]) {
+			return -(size + 1);
+		}
+
+		if (document == documents[size - 1]) {
+			return size - 1;
+		}
+
+		return find(document);
+	}
+
+	/**
+	 * Inserts a new posting at the index, growing the backing arrays by half again
+	 * their size when necessary.
+	 *
+	 * @param index the index to insert at
+	 * @param document the document ID
+	 * @param list the positions of the word within the document
+	 */
+	private void insert(int index, int document, PositionList list) {
+		if (size == documents.length) {
+			int grown = size + Math.max(1, size >> 1);
+			documents = Arrays.copyOf(documents, grown);
+			positions = Arrays.copyOf(positions, grown);
+		}
+
+		System.arraycopy(documents, index, documents, index + 1, size - index);
+		System.arraycopy(positions, index, positions, index + 1, size - index);
+		documents[index] = document;
+		positions[index] = list;
+		size++;
+	}
+
+	/**
+	 * Ensures the index refers to a posting in this list.
+	 *
+	 * @param index the index to check
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+	}
+}
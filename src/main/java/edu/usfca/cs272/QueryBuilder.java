@@ -10,8 +10,6 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import opennlp.tools.stemmer.Stemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
-import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
 
 
 // TODO Use the @Override annotation
@@ -43,6 +41,21 @@ public class QueryBuilder implements QueryInterface{
 	 */
 	private final boolean partialSearch;
 
+	/**
+	 * The maximum number of search results kept for each query, or 0 to keep every result.
+	 */
+	private final int limit;
+
+	/**
+	 * The cache of results shared with other query builders, or null to always search the index.
+	 */
+	private final QueryCache cache;
+
+	/**
+	 * The scorer used to rank the results of ordinary queries.
+	 */
+	private final Scorer scorer;
+
 	/**
 	 * Constructs a new QueryBuilder instance configured to use a specific inverted index and search type.
 	 *
@@ -50,10 +63,60 @@ public class QueryBuilder implements QueryInterface{
 	 * @param partialSearch true to enable partial match searches, false for exact match searches
 	 */
 	public QueryBuilder(InvertedIndex index, boolean partialSearch) {
+		this(index, partialSearch, 0);
+	}
+
+	/**
+	 * Constructs a new QueryBuilder instance that only keeps the best search results of each query.
+	 *
+	 * @param index the inverted index to use for generating search results
+	 * @param partialSearch true to enable partial match searches, false for exact match searches
+	 * @param limit the maximum number of search results kept for each query, or 0 or less to keep every result
+	 */
+	public QueryBuilder(InvertedIndex index, boolean partialSearch, int limit) {
+		this(index, partialSearch, limit, null);
+	}
+
+	/**
+	 * Constructs a new QueryBuilder instance that looks up results in a cache before searching the index.
+	 *
+	 * @param index the inverted index to use for generating search results
+	 * @param partialSearch true to enable partial match searches, false for exact match searches
+	 * @param limit the maximum number of search results kept for each query, or 0 or less to keep every result
+	 * @param cache the cache of results of the same index, or null to always search the index
+	 */
+	public QueryBuilder(InvertedIndex index, boolean partialSearch, int limit, QueryCache cache) {
+		this(index, partialSearch, limit, cache, FrequencyScorer.INSTANCE);
+	}
+
+	/**
+	 * Constructs a new QueryBuilder instance that ranks the results of ordinary queries with a scorer. Phrase and
+	 * proximity queries are always ranked by the frequency of their matches.
+	 *
+	 * @param index the inverted index to use for generating search results
+	 * @param partialSearch true to enable partial match searches, false for exact match searches
+	 * @param limit the maximum number of search results kept for each query, or 0 or less to keep every result
+	 * @param cache the cache of results of the same index, or null to always search the index
+	 * @param scorer the scorer to rank the results with
+	 */
+	public QueryBuilder(InvertedIndex index, boolean partialSearch, int limit, QueryCache cache, Scorer scorer) {
 		this.results = new TreeMap<>();
-		this.stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+		this.stemmer = StemCache.SHARED;
 		this.index = index;
 		this.partialSearch = partialSearch;
+		this.limit = Math.max(limit, 0);
+		this.cache = cache;
+		this.scorer = scorer;
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public List<InvertedIndex.SearchResult> search(Set<String> queryWords, boolean partial, int k) {
+		return cache != null ? cache.search(queryWords, partial, k, scorer) : index.search(queryWords, partial, k, scorer);
 	}
 
 	/**
@@ -105,12 +168,33 @@ public class QueryBuilder implements QueryInterface{
 	 * @param line The query line to process
 	 */
 	public void processQuery(String line) {
+		PhraseQuery phrase = PhraseQuery.parse(line, stemmer);
+
+		if (phrase != null) {
+			String key = phrase.getKey();
+
+			if (!results.containsKey(key)) {
+				this.results.put(key, cache != null ? cache.search(phrase, limit) : phrase.search(index, limit));
+			}
+			return;
+		}
+
+		BooleanQuery operators = BooleanQuery.parse(line, stemmer);
+
+		if (operators != null) {
+			String key = operators.getKey();
+
+			if (!results.containsKey(key)) {
+				this.results.put(key, cache != null ? cache.search(operators, limit, scorer) : operators.search(index, limit, scorer));
+			}
+			return;
+		}
+
 		TreeSet<String> queryWords = FileStemmer.uniqueStems(line, stemmer);
 		String key = String.join(" ", queryWords);
 
 		if (!queryWords.isEmpty() && !results.containsKey(key)) {
-			List<InvertedIndex.SearchResult> searchResults = index.search(queryWords, partialSearch);
-			this.results.put(key, searchResults);
+			this.results.put(key, search(queryWords, partialSearch, limit));
 		}
 	}
 
@@ -0,0 +1,474 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the search results of recent queries so repeated queries are not
+ * searched again, even across query builders and threads. Results are keyed by
+ * the stemmed query, whether the search is partial, positional, or boolean, the
+ * result limit, and the scorer. Once
+ * the cache holds its capacity, the least recently used results are evicted.
+ *
+ * <p>
+ * Every entry was computed against one {@link InvertedIndex#version()} of the
+ * index. Once the index changes, every entry is discarded on the next lookup, so
+ * cached results are never stale.
+ *
+ * <p>
+ * The cache can be written to disk and read back by a later run. The file
+ * records a hash of the whole content of the index, every word count and every
+ * position of every word, and is only read back into an index with the same
+ * content hash. Computing the hash reads the entire index once.
+ *
+ * <p>
+ * This class is thread-safe. Searches for missing results run without holding
+ * the lock of the cache.
+ */
+public class QueryCache {
+	/** The default maximum number of queries cached. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** The version of the cache file format, which changes whenever the format does. */
+	private static final int FORMAT = 3;
+
+	/** The algorithm used to hash the content of the index. */
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	/** The index searched for missing results. */
+	private final InvertedIndex index;
+
+	/** The maximum number of queries cached. */
+	private final int capacity;
+
+	/** Maps each key to its results, from least to most recently used. */
+	private final LinkedHashMap<String, List<InvertedIndex.SearchResult>> entries;
+
+	/** The version of the index the entries were computed against. */
+	private long version;
+
+	/** The number of lookups answered from the cache. */
+	private final LongAdder hits;
+
+	/** The number of lookups that had to search the index. */
+	private final LongAdder misses;
+
+	/** The number of times the entries were discarded because the index changed. */
+	private final LongAdder invalidations;
+
+	/**
+	 * Constructs an empty cache of the default capacity.
+	 *
+	 * @param index the index to search for missing results
+	 */
+	public QueryCache(InvertedIndex index) {
+		this(index, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty cache holding the results of at most the number of
+	 * queries provided.
+	 *
+	 * @param index the index to search for missing results
+	 * @param capacity the maximum number of queries cached
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 */
+	public QueryCache(InvertedIndex index, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be at least 1.");
+		}
+
+		this.index = index;
+		this.capacity = capacity;
+		this.version = index.version();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.invalidations = new LongAdder();
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			/** Unused serial version. */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<InvertedIndex.SearchResult>> eldest) {
+				return size() > QueryCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the key of a query.
+	 *
+	 * @param queryWords the stemmed query words
+	 * @param partial true for a partial search
+	 * @param limit the maximum number of results
+	 * @param scorer the scorer ranking the results
+	 * @return the key of the query
+	 */
+	private static String key(Set<String> queryWords, boolean partial, int limit, Scorer scorer) {
+		return (partial ? "partial:" : "exact:") + Math.max(limit, 0) + ":" + scorer + ":" + String.join(" ", queryWords);
+	}
+
+	/**
+	 * Returns the cached results of a query, or searches the index and caches
+	 * the results if they are missing or the index changed.
+	 *
+	 * @param queryWords the stemmed query words
+	 * @param partial true for a partial search
+	 * @param limit the maximum number of results, or 0 or less for every result
+	 * @return the sorted search results
+	 * @see InvertedIndex#search(Set, boolean, int)
+	 */
+	public List<InvertedIndex.SearchResult> search(Set<String> queryWords, boolean partial, int limit) {
+		return search(queryWords, partial, limit, FrequencyScorer.INSTANCE);
+	}
+
+	/**
+	 * Returns the cached results of a query ranked by the scorer provided, or
+	 * searches the index and caches the results if they are missing or the index
+	 * changed.
+	 *
+	 * @param queryWords the stemmed query words
+	 * @param partial true for a partial search
+	 * @param limit the maximum number of results, or 0 or less for every result
+	 * @param scorer the scorer to rank the results with
+	 * @return the sorted search results
+	 * @see InvertedIndex#search(Set, boolean, int, Scorer)
+	 */
+	public List<InvertedIndex.SearchResult> search(Set<String> queryWords, boolean partial, int limit, Scorer scorer) {
+		return lookup(key(queryWords, partial, limit, scorer), () -> index.search(queryWords, partial, limit, scorer));
+	}
+
+	/**
+	 * Returns the cached results of a phrase or proximity query, or searches
+	 * the index and caches the results if they are missing or the index changed.
+	 *
+	 * @param query the positional query
+	 * @param limit the maximum number of results, or 0 or less for every result
+	 * @return the sorted search results
+	 * @see PhraseQuery#search(InvertedIndex, int)
+	 */
+	public List<InvertedIndex.SearchResult> search(PhraseQuery query, int limit) {
+		return lookup("position:" + Math.max(limit, 0) + ":" + query.getKey(), () -> query.search(index, limit));
+	}
+
+	/**
+	 * Returns the cached results of a boolean query, or searches the index and
+	 * caches the results if they are missing or the index changed.
+	 *
+	 * @param query the boolean query
+	 * @param limit the maximum number of results, or 0 or less for every result
+	 * @param scorer the scorer to rank the results with
+	 * @return the sorted search results
+	 * @see BooleanQuery#search(InvertedIndex, int, Scorer)
+	 */
+	public List<InvertedIndex.SearchResult> search(BooleanQuery query, int limit, Scorer scorer) {
+		return lookup("boolean:" + Math.max(limit, 0) + ":" + scorer + ":" + query.getKey(), () -> query.search(index, limit, scorer));
+	}
+
+	/**
+	 * Returns the cached results of a key, or runs the search and caches its
+	 * results if they are missing or the index changed.
+	 *
+	 * @param key the key of the query
+	 * @param search the search to run if the results are missing
+	 * @return the sorted search results
+	 */
+	private List<InvertedIndex.SearchResult> lookup(String key, Supplier<List<InvertedIndex.SearchResult>> search) {
+		long current = index.version();
+
+		synchronized (entries) {
+			if (current != version) {
+				if (!entries.isEmpty()) {
+					entries.clear();
+					invalidations.increment();
+				}
+				version = current;
+			}
+
+			var cached = entries.get(key);
+
+			if (cached != null) {
+				hits.increment();
+				return cached;
+			}
+		}
+
+		misses.increment();
+		List<InvertedIndex.SearchResult> results = search.get();
+
+		synchronized (entries) {
+			// results from an index that changed since the lookup may already be stale
+			if (version == current) {
+				entries.put(key, results);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Discards every cached result.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of queries cached.
+	 *
+	 * @return the number of queries cached
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of queries cached.
+	 *
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that had to search the index.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the fraction of lookups answered from the cache.
+	 *
+	 * @return the hit rate between 0 and 1, or 0 if nothing was looked up
+	 */
+	public double getHitRate() {
+		long hit = getHits();
+		long total = hit + getMisses();
+		return total == 0 ? 0 : hit / (double) total;
+	}
+
+	/**
+	 * Returns the number of times the cache was emptied because the index
+	 * changed.
+	 *
+	 * @return the number of invalidations
+	 */
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	/**
+	 * Computes a hash of the content of the index: the word count of every
+	 * location, and every position of every word in every location. The postings
+	 * of each word are hashed in the sorted order of their locations rather than
+	 * by document ID, so the hash does not depend on the order the documents were
+	 * added in by different threads. Any change to the index that could change
+	 * the results of a query changes the hash.
+	 *
+	 * @return the content hash of the index
+	 */
+	private byte[] contentHash() {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java platform supports " + HASH_ALGORITHM + ".", e);
+		}
+
+		ByteBuffer number = ByteBuffer.allocate(Integer.BYTES);
+		DocumentTable documents = index.documents();
+
+		// ranks each document ID by its location, in sorted order
+		int[] ranks = new int[documents.size()];
+		int rank = 0;
+
+		for (var entry : index.getWordCount().entrySet()) {
+			update(digest, number, entry.getKey());
+			update(digest, number, entry.getValue());
+			ranks[documents.getId(entry.getKey())] = rank++;
+		}
+
+		for (String word : index.viewWords()) {
+			Postings postings = index.getPostings(word);
+
+			if (postings == null) {
+				continue;
+			}
+
+			update(digest, number, word);
+			update(digest, number, postings.size());
+
+			// sorts the postings by the rank of their location, keeping their index in the low bits
+			long[] order = new long[postings.size()];
+
+			for (int i = 0; i < order.length; i++) {
+				order[i] = (long) ranks[postings.document(i)] << Integer.SIZE | i;
+			}
+
+			Arrays.sort(order);
+
+			for (long sorted : order) {
+				int i = (int) sorted;
+				PositionList positions = postings.positions(i);
+				update(digest, number, documents.getPath(postings.document(i)));
+				update(digest, number, positions.size());
+
+				var iterator = positions.iterator();
+				while (iterator.hasNext()) {
+					update(digest, number, iterator.nextInt());
+				}
+			}
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * Adds a string and its length to a hash, so adjacent strings cannot run
+	 * into each other.
+	 *
+	 * @param digest the hash to add to
+	 * @param buffer the buffer to write the length to before it is added
+	 * @param text the string to add
+	 */
+	private static void update(MessageDigest digest, ByteBuffer buffer, String text) {
+		byte[] bytes = text.getBytes(UTF_8);
+		update(digest, buffer, bytes.length);
+		digest.update(bytes);
+	}
+
+	/**
+	 * Adds a number to a hash.
+	 *
+	 * @param digest the hash to add to
+	 * @param buffer the buffer to write the number to before it is added
+	 * @param value the number to add
+	 */
+	private static void update(MessageDigest digest, ByteBuffer buffer, int value) {
+		digest.update(buffer.clear().putInt(value).flip());
+	}
+
+	/**
+	 * Writes the cached results to a file, from least to most recently used.
+	 * The index must not change while the cache is written.
+	 *
+	 * @param file the file to write to
+	 * @throws IOException if an IO error occurs
+	 * @see #read(Path)
+	 */
+	public void write(Path file) throws IOException {
+		List<Map.Entry<String, List<InvertedIndex.SearchResult>>> snapshot;
+
+		synchronized (entries) {
+			snapshot = new ArrayList<>(entries.entrySet());
+		}
+
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			FrozenIndex.writeMagic(out);
+			out.writeInt(FORMAT);
+			byte[] hash = contentHash();
+			out.writeInt(hash.length);
+			out.write(hash);
+			out.writeInt(snapshot.size());
+
+			for (var entry : snapshot) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue().size());
+
+				for (InvertedIndex.SearchResult result : entry.getValue()) {
+					out.writeUTF(result.getLocation());
+					out.writeInt(result.getCount());
+					out.writeDouble(result.getScore());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the results written by {@link #write(Path)} into this cache, if they
+	 * were written for an index with the same content hash as the index of this
+	 * cache. The index must not change while the cache is read.
+	 *
+	 * @param file the file to read from
+	 * @return true if the results were read, or false if the index has changed
+	 *   since they were written or they were written in another format
+	 * @throws IOException if an IO error occurs or the file is not a query cache
+	 */
+	public boolean read(Path file) throws IOException {
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			FrozenIndex.checkMagic(ByteBuffer.wrap(in.readNBytes(Integer.BYTES)), file);
+
+			if (in.readInt() != FORMAT || !Arrays.equals(in.readNBytes(in.readInt()), contentHash())) {
+				return false;
+			}
+
+			int total = in.readInt();
+
+			synchronized (entries) {
+				version = index.version();
+
+				for (int i = 0; i < total; i++) {
+					String key = in.readUTF();
+					int count = in.readInt();
+					List<InvertedIndex.SearchResult> results = new ArrayList<>(count);
+
+					for (int j = 0; j < count; j++) {
+						var result = index.newResult(in.readUTF(), in.readInt(), in.readDouble());
+
+						if (result == null) {
+							throw new IOException("Query cache does not match the index: " + file);
+						}
+
+						results.add(result);
+					}
+
+					entries.put(key, results);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Queries: %d of %d, Hits: %d, Misses: %d, Hit Rate: %.1f%%, Invalidations: %d",
+				size(), capacity, getHits(), getMisses(), getHitRate() * 100, getInvalidations());
+	}
+}
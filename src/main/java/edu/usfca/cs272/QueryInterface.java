@@ -36,6 +36,23 @@ public interface QueryInterface {
 	 */
 	Set<String> getQueries();
 
+	/**
+	 * Returns the maximum number of search results kept for each query.
+	 * @return the maximum number of results, or 0 if every result is kept
+	 */
+	int getLimit();
+
+	/**
+	 * Searches for the best results of stemmed query words, keeping only the top k results in a bounded heap
+	 * instead of sorting every result. The results are returned without being stored with the processed queries.
+	 * @param queryWords the stemmed query words
+	 * @param partial true for a partial search, false for an exact search
+	 * @param k the maximum number of results, or 0 or less for every result
+	 * @return the sorted search results
+	 * @see InvertedIndex#search(Set, boolean, int, Scorer)
+	 */
+	List<InvertedIndex.SearchResult> search(Set<String> queryWords, boolean partial, int k);
+
 	/**
 	 * Writes the search results to a specified file.
 	 * @param path the path of the file where the search results will be written
@@ -0,0 +1,259 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Measures how many tasks per second each {@link TaskQueue} runs, for tasks the
+ * size of the ones the builders queue. Run with:
+ *
+ * <pre>
+ * java edu.usfca.cs272.QueueBenchmark [-threads threads] [-files files] [-queries queries] [-tasks tasks] [-rounds rounds]
+ * </pre>
+ *
+ * <p>
+ * Three kinds of tasks are timed on a {@link WorkQueue}, a
+ * {@link WorkStealingQueue}, and a {@link VirtualThreadQueue}:
+ *
+ * <ul>
+ * <li>{@code empty}: {@code -tasks} tasks that do nothing (200000 by default),
+ * so only the cost of queueing and running a task is measured.</li>
+ * <li>{@code file}: a {@link MultiThreadedInvertedIndexBuilder.FileTask} for
+ * each of {@code -files} small generated text files (2000 by default), all
+ * indexed into one {@link MultiThreadedInvertedIndex}.</li>
+ * <li>{@code query}: {@code -queries} distinct queries (20000 by default), each
+ * processed by a {@link MultiThreadedQueryBuilder} on its own task against the
+ * frozen index of those files.</li>
+ * </ul>
+ *
+ * <p>
+ * Each kind is run once to warm up and then {@code -rounds} times (5 by
+ * default) on every queue, and the best round is reported. Every queue runs with
+ * {@code -threads} threads, or permits for the virtual thread queue
+ * ({@link WorkQueue#DEFAULT} by default).
+ */
+public class QueueBenchmark {
+	/** The number of empty tasks queued by default. */
+	public static final int DEFAULT_TASKS = 200_000;
+
+	/** The number of files indexed by default. */
+	public static final int DEFAULT_FILES = 2000;
+
+	/** The number of queries processed by default. */
+	public static final int DEFAULT_QUERIES = 20_000;
+
+	/** The number of timed rounds by default. */
+	public static final int DEFAULT_ROUNDS = 5;
+
+	/** The number of distinct words in generated text. */
+	private static final int VOCABULARY = 5000;
+
+	/** The number of words in each generated file. */
+	private static final int FILE_WORDS = 120;
+
+	/** The number of words on each generated line. */
+	private static final int LINE_WORDS = 12;
+
+	/** The number of nanoseconds in a second. */
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+	/**
+	 * Runs every kind of task on every queue and prints the tasks per second.
+	 *
+	 * @param args flag/value pairs choosing the sizes of the benchmark
+	 */
+	public static void main(String[] args) {
+		ArgumentParser parser = new ArgumentParser(args);
+		int threads = positive(parser.getInteger("-threads", WorkQueue.DEFAULT), WorkQueue.DEFAULT);
+		int tasks = positive(parser.getInteger("-tasks", DEFAULT_TASKS), DEFAULT_TASKS);
+		int count = positive(parser.getInteger("-files", DEFAULT_FILES), DEFAULT_FILES);
+		int queries = positive(parser.getInteger("-queries", DEFAULT_QUERIES), DEFAULT_QUERIES);
+		int rounds = positive(parser.getInteger("-rounds", DEFAULT_ROUNDS), DEFAULT_ROUNDS);
+
+		Path directory = null;
+
+		try {
+			directory = Files.createTempDirectory("queue-benchmark");
+			Random random = new Random(272);
+			List<Path> files = writeFiles(directory, count, random);
+			List<String> lines = new ArrayList<>(queries);
+
+			for (int i = 0; i < queries; i++) {
+				lines.add(randomWord(random) + " " + randomWord(random) + " " + i);
+			}
+
+			MultiThreadedInvertedIndex searched = new MultiThreadedInvertedIndex();
+			for (Path file : files) {
+				InvertedIndexBuilder.processFile(file, searched);
+			}
+			searched.freeze();
+
+			System.out.printf("Threads: %d, Rounds: %d%n", threads, rounds);
+
+			run("empty", tasks, rounds, threads, round -> {
+				List<Runnable> empty = new ArrayList<>(tasks);
+				for (int i = 0; i < tasks; i++) {
+					empty.add(() -> {});
+				}
+				return empty;
+			});
+
+			run("file", files.size(), rounds, threads, round -> {
+				MultiThreadedInvertedIndex index = new MultiThreadedInvertedIndex();
+				List<Runnable> indexing = new ArrayList<>(files.size());
+				for (Path file : files) {
+					indexing.add(new MultiThreadedInvertedIndexBuilder.FileTask(file, index));
+				}
+				return indexing;
+			});
+
+			run("query", lines.size(), rounds, threads, round -> {
+				// the queue of the builder is unused, since every query is queued by the benchmark
+				var builder = new MultiThreadedQueryBuilder(searched, false, null);
+				List<Runnable> searching = new ArrayList<>(lines.size());
+				for (String line : lines) {
+					searching.add(() -> builder.processQuery(line));
+				}
+				return searching;
+			});
+		} catch (IOException e) {
+			System.err.println("Error writing benchmark files to: " + directory);
+		} finally {
+			delete(directory);
+		}
+	}
+
+	/**
+	 * Times one kind of task on every queue and prints the tasks per second of
+	 * the best round on each.
+	 *
+	 * @param kind the name of the kind of task
+	 * @param tasks the number of tasks in each round
+	 * @param rounds the number of timed rounds
+	 * @param threads the number of threads of each queue
+	 * @param batch creates the tasks of a round, which is given its number
+	 */
+	private static void run(String kind, int tasks, int rounds, int threads, IntFunction<List<Runnable>> batch) {
+		List<String> names = List.of("WorkQueue", "WorkStealingQueue", "VirtualThreadQueue");
+		List<IntFunction<TaskQueue>> queues = List.of(WorkQueue::new, WorkStealingQueue::new, VirtualThreadQueue::new);
+
+		for (int q = 0; q < queues.size(); q++) {
+			TaskQueue queue = queues.get(q).apply(threads);
+			long best = Long.MAX_VALUE;
+
+			try {
+				for (int round = 0; round <= rounds; round++) {
+					List<Runnable> work = batch.apply(round);
+					long start = System.nanoTime();
+
+					for (Runnable task : work) {
+						queue.execute(task);
+					}
+
+					queue.finish();
+					long elapsed = System.nanoTime() - start;
+
+					if (round > 0) {
+						best = Math.min(best, elapsed);
+					}
+				}
+			} finally {
+				queue.shutdown();
+				queue.join();
+			}
+
+			System.out.printf("%-6s %-18s %,12.0f tasks/s%n", kind, names.get(q), tasks / (best / NANOS_PER_SECOND));
+		}
+	}
+
+	/**
+	 * Writes small text files of random words.
+	 *
+	 * @param directory the directory to write the files in
+	 * @param count the number of files to write
+	 * @param random the source of randomness
+	 * @return the files written
+	 * @throws IOException if an IO error occurs
+	 */
+	private static List<Path> writeFiles(Path directory, int count, Random random) throws IOException {
+		List<Path> files = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			StringBuilder text = new StringBuilder();
+
+			for (int word = 1; word <= FILE_WORDS; word++) {
+				text.append(randomWord(random)).append(word % LINE_WORDS == 0 ? '\n' : ' ');
+			}
+
+			Path file = directory.resolve("file" + i + ".txt");
+			Files.writeString(file, text, UTF_8);
+			files.add(file);
+		}
+
+		return files;
+	}
+
+	/**
+	 * Returns a random word from a fixed vocabulary, where lower ranked words are
+	 * much more common than higher ranked ones, as in natural language.
+	 *
+	 * @param random the source of randomness
+	 * @return the random word
+	 */
+	static String randomWord(Random random) {
+		// the square of a uniform value skews the ranks toward the most common words
+		double skew = random.nextDouble();
+		int rank = (int) (skew * skew * VOCABULARY);
+		StringBuilder word = new StringBuilder("w");
+
+		do {
+			word.append((char) ('a' + rank % 26));
+			rank /= 26;
+		} while (rank > 0);
+
+		return word.toString();
+	}
+
+	/**
+	 * Returns the value if it is positive, or the backup otherwise.
+	 *
+	 * @param value the value to check
+	 * @param backup the value to use if the value is not positive
+	 * @return the positive value
+	 */
+	private static int positive(int value, int backup) {
+		return value > 0 ? value : backup;
+	}
+
+	/**
+	 * Deletes a directory and every file in it, ignoring any errors.
+	 *
+	 * @param directory the directory to delete, or null
+	 */
+	private static void delete(Path directory) {
+		if (directory == null) {
+			return;
+		}
+
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(path);
+			}
+		} catch (IOException e) {
+			System.err.println("Error deleting benchmark files in: " + directory);
+		}
+	}
+
+	/** Prevent instantiating this class of static methods. */
+	private QueueBenchmark() {
+	}
+}
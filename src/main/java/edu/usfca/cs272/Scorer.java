@@ -0,0 +1,55 @@
+package edu.usfca.cs272;
+
+/**
+ * Scores a document for a query one posting at a time, as the postings of each
+ * query word are merged into the search results. Scoring is split into a
+ * weight computed once for each query word and a score updated for every
+ * posting, so scoring a posting never creates any objects.
+ *
+ * <p>
+ * The score of a document must never exceed the sum of the scores of each of
+ * its postings scored on their own, starting from 0. Searches for the best
+ * results rely on these bounds to skip documents that cannot rank high enough.
+ *
+ * @see FrequencyScorer
+ * @see BM25Scorer
+ */
+public interface Scorer {
+	/**
+	 * Computes the weight of a query word, once for each query word in a
+	 * search.
+	 *
+	 * @param documentFrequency the number of documents the word appears in
+	 * @param documents the number of documents with any words in the index
+	 * @return the weight of the word
+	 */
+	public double weight(int documentFrequency, int documents);
+
+	/**
+	 * Returns the score of a document after one more posting of a query word is
+	 * found in it.
+	 *
+	 * @param score the score of the document before this posting, or 0 for the
+	 *   first posting
+	 * @param count the total frequency of every query word found in the document
+	 *   so far, including this posting
+	 * @param frequency the frequency of the query word of this posting
+	 * @param weight the weight of the query word of this posting
+	 * @param length the number of words in the document
+	 * @param averageLength the average number of words in a document of the index
+	 * @return the new score of the document
+	 */
+	public double score(double score, int count, int frequency, double weight, int length, double averageLength);
+
+	/**
+	 * Determines whether scoring the summed frequency of several words in a
+	 * document gives the same score as scoring each word separately. Partial
+	 * searches may then score the aggregate postings of a prefix instead of the
+	 * postings of every word starting with it.
+	 *
+	 * @return true if frequencies may be summed before scoring
+	 */
+	public default boolean isAdditive() {
+		return false;
+	}
+}
@@ -0,0 +1,247 @@
+package edu.usfca.cs272;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the cost of scoring each query with every {@link Scorer}, and the
+ * memory allocated while doing so. Run with:
+ *
+ * <pre>
+ * java edu.usfca.cs272.ScorerBenchmark [-documents documents] [-words words] [-queries queries] [-rounds rounds]
+ * </pre>
+ *
+ * <p>
+ * An index of {@code -documents} generated documents (20000 by default) of up
+ * to {@code -words} words each (400 by default) is searched with
+ * {@code -queries} random queries of one to three words (2000 by default). For
+ * each scorer, two costs are reported as the best of {@code -rounds} passes
+ * over every query (5 by default):
+ *
+ * <ul>
+ * <li>{@code scoring}: only the calls to {@link Scorer#score} for every posting
+ * of every query word, as the searches make them, in nanoseconds and bytes
+ * allocated per posting. Scoring a posting should allocate nothing.</li>
+ * <li>{@code search}: a whole exact search of each query, returning every result
+ * and then only the best 10, in microseconds and bytes allocated per query.</li>
+ * </ul>
+ *
+ * <p>
+ * Allocated bytes are only reported if the virtual machine can count the
+ * allocations of a thread.
+ */
+public class ScorerBenchmark {
+	/** The number of documents indexed by default. */
+	public static final int DEFAULT_DOCUMENTS = 20_000;
+
+	/** The largest number of words in a document by default. */
+	public static final int DEFAULT_WORDS = 400;
+
+	/** The number of queries searched by default. */
+	public static final int DEFAULT_QUERIES = 2000;
+
+	/** The number of timed rounds by default. */
+	public static final int DEFAULT_ROUNDS = 5;
+
+	/** The number of best results returned by the limited searches. */
+	private static final int LIMIT = 10;
+
+	/** The largest number of words in a query. */
+	private static final int QUERY_WORDS = 3;
+
+	/** The number of nanoseconds in a microsecond. */
+	private static final double NANOS_PER_MICRO = 1000.0;
+
+	/** Counts the bytes allocated by a thread, or null if it is not supported. */
+	private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocations();
+
+	/**
+	 * Times every scorer on the index and queries described by the arguments.
+	 *
+	 * @param args flag/value pairs choosing the sizes of the benchmark
+	 */
+	public static void main(String[] args) {
+		ArgumentParser parser = new ArgumentParser(args);
+		int documents = positive(parser.getInteger("-documents", DEFAULT_DOCUMENTS), DEFAULT_DOCUMENTS);
+		int words = positive(parser.getInteger("-words", DEFAULT_WORDS), DEFAULT_WORDS);
+		int count = positive(parser.getInteger("-queries", DEFAULT_QUERIES), DEFAULT_QUERIES);
+		int rounds = positive(parser.getInteger("-rounds", DEFAULT_ROUNDS), DEFAULT_ROUNDS);
+
+		Random random = new Random(272);
+		InvertedIndex index = new InvertedIndex();
+
+		for (int i = 0; i < documents; i++) {
+			int document = index.addDocument("document" + i);
+			int length = 1 + random.nextInt(words);
+
+			for (int position = 1; position <= length; position++) {
+				index.add(QueueBenchmark.randomWord(random), document, position);
+			}
+		}
+
+		index.freeze();
+
+		List<Set<String>> queries = new ArrayList<>(count);
+		List<Postings[]> matches = new ArrayList<>(count);
+		long postings = 0;
+
+		for (int i = 0; i < count; i++) {
+			Set<String> query = new TreeSet<>();
+			int length = 1 + random.nextInt(QUERY_WORDS);
+
+			while (query.size() < length) {
+				query.add(QueueBenchmark.randomWord(random));
+			}
+
+			List<Postings> found = new ArrayList<>();
+
+			for (String word : query) {
+				Postings match = index.getPostings(word);
+
+				if (match != null) {
+					found.add(match);
+					postings += match.size();
+				}
+			}
+
+			queries.add(query);
+			matches.add(found.toArray(Postings[]::new));
+		}
+
+		System.out.printf("Documents: %d, Queries: %d, Postings: %d, Rounds: %d%n", documents, count, postings, rounds);
+
+		for (Scorer scorer : List.of(FrequencyScorer.INSTANCE, new BM25Scorer())) {
+			long[] scoring = measure(rounds, () -> score(index, matches, scorer));
+			System.out.printf("%-24s scoring %8.2f ns/posting %8s bytes/posting%n", scorer,
+					scoring[0] / (double) postings, bytes(scoring[1], postings));
+
+			for (int limit : new int[] { 0, LIMIT }) {
+				long[] search = measure(rounds, () -> {
+					long results = 0;
+					for (Set<String> query : queries) {
+						results += index.search(query, false, limit, scorer).size();
+					}
+					return results;
+				});
+
+				System.out.printf("%-24s search  %8.2f us/query   %8s bytes/query   (limit %d)%n", scorer,
+						search[0] / NANOS_PER_MICRO / count, bytes(search[1], count), limit);
+			}
+		}
+	}
+
+	/**
+	 * Scores every posting of every query word the way a search does, but
+	 * without looking up the words or collecting any results, so only the cost
+	 * of the scorer is left.
+	 *
+	 * @param index the index the postings are from
+	 * @param matches the postings of the words of each query
+	 * @param scorer the scorer to score each posting with
+	 * @return the sum of the scores, so the scoring cannot be optimized away
+	 */
+	private static long score(InvertedIndex index, List<Postings[]> matches, Scorer scorer) {
+		DocumentTable documents = index.documents();
+		double averageLength = documents.getAverageCount();
+		double total = 0;
+
+		for (Postings[] query : matches) {
+			for (Postings postings : query) {
+				double weight = scorer.weight(postings.size(), documents.getCountedDocuments());
+
+				for (int i = 0; i < postings.size(); i++) {
+					int frequency = postings.frequency(i);
+					int length = documents.getCount(postings.document(i));
+					total += scorer.score(0, frequency, frequency, weight, length, averageLength);
+				}
+			}
+		}
+
+		return (long) total;
+	}
+
+	/**
+	 * Runs a pass once to warm up and then the number of rounds provided, and
+	 * returns the time and allocations of the fastest round.
+	 *
+	 * @param rounds the number of timed rounds
+	 * @param pass the pass to run each round, returning a value that depends on
+	 *   its work
+	 * @return the nanoseconds and bytes allocated of the fastest round, where the
+	 *   bytes are negative if allocations cannot be counted
+	 */
+	private static long[] measure(int rounds, LongSupplier pass) {
+		long[] best = { Long.MAX_VALUE, -1 };
+		long checksum = 0;
+
+		for (int round = 0; round <= rounds; round++) {
+			long thread = Thread.currentThread().threadId();
+			long allocated = ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(thread) : -1;
+			long start = System.nanoTime();
+
+			checksum += pass.getAsLong();
+
+			long elapsed = System.nanoTime() - start;
+			allocated = ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(thread) - allocated : -1;
+
+			if (round > 0 && elapsed < best[0]) {
+				best[0] = elapsed;
+				best[1] = allocated;
+			}
+		}
+
+		// uses the results of every pass so they cannot be optimized away
+		if (checksum == Long.MIN_VALUE) {
+			throw new IllegalStateException();
+		}
+
+		return best;
+	}
+
+	/**
+	 * Formats the bytes allocated for each unit of work.
+	 *
+	 * @param bytes the bytes allocated, or a negative number if unknown
+	 * @param units the number of units of work
+	 * @return the formatted bytes per unit, or {@code n/a} if unknown
+	 */
+	private static String bytes(long bytes, long units) {
+		return bytes < 0 ? "n/a" : String.format("%.2f", bytes / (double) Math.max(units, 1));
+	}
+
+	/**
+	 * Returns the bean counting the bytes allocated by each thread, if the
+	 * virtual machine supports it.
+	 *
+	 * @return the bean, or null if allocations cannot be counted
+	 */
+	private static com.sun.management.ThreadMXBean allocations() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+				&& bean.isThreadAllocatedMemorySupported()) {
+			bean.setThreadAllocatedMemoryEnabled(true);
+			return bean;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the value if it is positive, or the backup otherwise.
+	 *
+	 * @param value the value to check
+	 * @param backup the value to use if the value is not positive
+	 * @return the positive value
+	 */
+	private static int positive(int value, int backup) {
+		return value > 0 ? value : backup;
+	}
+
+	/** Prevent instantiating this class of static methods. */
+	private ScorerBenchmark() {
+	}
+}
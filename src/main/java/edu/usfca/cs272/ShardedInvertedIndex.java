@@ -0,0 +1,799 @@
+package edu.usfca.cs272;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Extends {@link MultiThreadedInvertedIndex} to partition words by hash across a fixed number of shards, each
+ * an independent {@link InvertedIndex} guarded by its own {@link MultiReaderLock}. Combining a local index only
+ * locks one shard at a time, so threads merging different files contend only when they touch the same shard,
+ * and a search only locks the shards of its query words.
+ *
+ * <p>
+ * Every shard shares one {@link DocumentTable}, so document IDs are the same in every shard. The table has its
+ * own lock, which is always acquired after any shard locks. Shards are always locked in ascending order, so
+ * operations that lock several shards cannot deadlock.
+ *
+ * <p>
+ * Reads only lock the shards they touch and the document table, never the single lock of
+ * {@link MultiThreadedInvertedIndex}, so searches of different shards never contend.
+ *
+ * <p>
+ * Freezing the index merges every shard into a single {@link FrozenIndex}, after which the shards are
+ * released and reads no longer lock anything.
+ */
+public class ShardedInvertedIndex extends MultiThreadedInvertedIndex {
+	/** The default number of shards. */
+	public static final int DEFAULT_SHARDS = 16;
+
+	/**
+	 * The shards that words are partitioned across, or null once the index is frozen.
+	 */
+	private volatile InvertedIndex[] shards;
+
+	/**
+	 * The lock of each shard.
+	 */
+	private final MultiReaderLock[] locks;
+
+	/**
+	 * The lock guarding the document table shared by every shard.
+	 */
+	private final MultiReaderLock documentLock;
+
+	/**
+	 * The index of every shard, used to lock every shard at once.
+	 */
+	private final int[] allShards;
+
+	/**
+	 * Constructs a new ShardedInvertedIndex with the number of shards provided.
+	 *
+	 * @param numShards the number of shards to partition words across
+	 */
+	public ShardedInvertedIndex(int numShards) {
+		this(false, numShards);
+	}
+
+	/**
+	 * Constructs a new ShardedInvertedIndex with the number of shards provided, optionally storing positions as
+	 * compressed gaps.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 * @param numShards the number of shards to partition words across
+	 * @throws IllegalArgumentException if the number of shards is less than 1
+	 */
+	public ShardedInvertedIndex(boolean compressed, int numShards) {
+		this(compressed, numShards, new DocumentTable());
+	}
+
+	/**
+	 * Constructs a new ShardedInvertedIndex whose shards share the document table provided.
+	 *
+	 * @param compressed true to store positions as compressed gaps
+	 * @param numShards the number of shards to partition words across
+	 * @param documents the document table shared by every shard
+	 * @throws IllegalArgumentException if the number of shards is less than 1
+	 */
+	private ShardedInvertedIndex(boolean compressed, int numShards, DocumentTable documents) {
+		super(compressed, documents);
+
+		if (numShards < 1) {
+			throw new IllegalArgumentException("The number of shards must be at least 1.");
+		}
+
+		this.shards = new InvertedIndex[numShards];
+		this.locks = new MultiReaderLock[numShards];
+		this.allShards = new int[numShards];
+		this.documentLock = new MultiReaderLock();
+
+		for (int i = 0; i < numShards; i++) {
+			shards[i] = new InvertedIndex(compressed, documents);
+			locks[i] = new MultiReaderLock();
+			allShards[i] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of shards words are partitioned across.
+	 *
+	 * @return the number of shards
+	 */
+	public int numShards() {
+		return locks.length;
+	}
+
+	/**
+	 * Returns the shard a word belongs to.
+	 *
+	 * @param word the word
+	 * @return the index of the shard holding the word
+	 */
+	private int shard(String word) {
+		return Math.floorMod(word.hashCode(), locks.length);
+	}
+
+	/**
+	 * Returns the shards of the index, or null if the index is frozen and reads and writes should go to the
+	 * frozen snapshot instead.
+	 *
+	 * @return the shards, or null if the index is frozen
+	 */
+	private InvertedIndex[] shards() {
+		InvertedIndex[] current = shards;
+		return isFrozen() ? null : current;
+	}
+
+	/**
+	 * Returns the distinct shards of the words in ascending order, which is the order they must be locked in.
+	 *
+	 * @param words the words to find the shards of
+	 * @return the sorted indexes of the shards holding the words
+	 */
+	private int[] shards(Set<String> words) {
+		return words.stream().mapToInt(this::shard).distinct().sorted().toArray();
+	}
+
+	/**
+	 * Returns the shards a read must lock, or null if the index is frozen and nothing needs to be locked. An
+	 * index cannot be frozen while a reader holds the locks, so the locks released always match the locks
+	 * acquired.
+	 *
+	 * @param touched the sorted indexes of the shards the read touches
+	 * @return the shards to lock, or null if the index is frozen
+	 */
+	private int[] touched(int... touched) {
+		return isFrozen() ? null : touched;
+	}
+
+	/**
+	 * Acquires the read locks of the shards provided and then of the document table.
+	 *
+	 * @param touched the sorted indexes of the shards to lock, or null to lock nothing
+	 */
+	private void lockRead(int[] touched) {
+		if (touched == null) {
+			return;
+		}
+
+		for (int i : touched) {
+			locks[i].readLock().lock();
+		}
+		documentLock.readLock().lock();
+	}
+
+	/**
+	 * Releases the locks acquired by {@link #lockRead(int[])}.
+	 *
+	 * @param touched the sorted indexes of the shards to unlock, or null to unlock nothing
+	 */
+	private void unlockRead(int[] touched) {
+		if (touched == null) {
+			return;
+		}
+
+		documentLock.readLock().unlock();
+		for (int i = touched.length - 1; i >= 0; i--) {
+			locks[touched[i]].readLock().unlock();
+		}
+	}
+
+	/**
+	 * Merges the postings of every shard into another index that shares the document table of the shards.
+	 * The caller must hold the locks of every shard.
+	 *
+	 * @param current the shards to merge
+	 * @param target the index to merge into
+	 */
+	private void mergeShards(InvertedIndex[] current, InvertedIndex target) {
+		int[] identity = new int[documents().size()];
+		Arrays.setAll(identity, id -> id);
+
+		for (InvertedIndex shard : current) {
+			for (String word : shard.words()) {
+				target.addPostings(word, shard.getPostings(word), identity);
+			}
+		}
+	}
+
+	/**
+	 * Returns a lock that does nothing, since every read of this index already holds the locks of the shards it
+	 * touches and of the document table. Reads inherited from {@link MultiThreadedInvertedIndex} therefore run
+	 * the {@link InvertedIndex} implementation directly, without the global lock.
+	 *
+	 * @return a lock that does nothing
+	 */
+	@Override
+	MultiReaderLock.SimpleLock readLock() {
+		return UNLOCKED;
+	}
+
+	/**
+	 * Opens a segment while holding every lock, since reads do not take the global lock of
+	 * {@link MultiThreadedInvertedIndex}, then releases the shards.
+	 *
+	 * @param directory the segment directory to read from
+	 * @throws IOException if an IO error occurs or the files are not a valid segment
+	 */
+	@Override
+	public void openSegment(Path directory) throws IOException {
+		for (MultiReaderLock shardLock : locks) {
+			shardLock.writeLock().lock();
+		}
+		documentLock.writeLock().lock();
+
+		try {
+			super.openSegment(directory);
+			shards = null;
+		} finally {
+			documentLock.writeLock().unlock();
+			for (int i = locks.length - 1; i >= 0; i--) {
+				locks[i].writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Merges every shard into a single frozen snapshot while holding every lock, then releases the shards.
+	 */
+	@Override
+	public void freeze() {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			return;
+		}
+
+		for (MultiReaderLock shardLock : locks) {
+			shardLock.writeLock().lock();
+		}
+		documentLock.writeLock().lock();
+
+		try {
+			if (!isFrozen()) {
+				mergeShards(current, this);
+				super.freeze();
+				shards = null;
+			}
+		} finally {
+			documentLock.writeLock().unlock();
+			for (int i = locks.length - 1; i >= 0; i--) {
+				locks[i].writeLock().unlock();
+			}
+		}
+	}
+
+	@Override
+	public void writeSegment(Path directory) throws IOException {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			super.writeSegment(directory);
+			return;
+		}
+
+		lockRead(allShards);
+		try {
+			InvertedIndex merged = new InvertedIndex(isCompressed(), documents());
+			mergeShards(current, merged);
+			merged.writeSegment(directory);
+		} finally {
+			unlockRead(allShards);
+		}
+	}
+
+	@Override
+	Postings getPostings(String word) {
+		InvertedIndex[] current = shards();
+		return current == null ? super.getPostings(word) : current[shard(word)].getPostings(word);
+	}
+
+	@Override
+	Set<String> words() {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			return super.words();
+		}
+
+		TreeSet<String> words = new TreeSet<>();
+
+		for (InvertedIndex shard : current) {
+			words.addAll(shard.words());
+		}
+
+		return Collections.unmodifiableSet(words);
+	}
+
+	@Override
+	List<Postings> partialMatches(Set<String> queryWords, boolean aggregate) {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			return super.partialMatches(queryWords, aggregate);
+		}
+
+		List<Postings> matches = new ArrayList<>();
+
+		for (InvertedIndex shard : current) {
+			matches.addAll(shard.partialMatches(queryWords, aggregate));
+		}
+
+		return matches;
+	}
+
+	@Override
+	public int addDocument(String location) {
+		if (shards() == null) {
+			return super.addDocument(location);
+		}
+
+		documentLock.writeLock().lock();
+		try {
+			return documents().add(location);
+		} finally {
+			documentLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void add(String word, int document, int position) {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			super.add(word, document, position);
+			return;
+		}
+
+		int shard = shard(word);
+		locks[shard].writeLock().lock();
+		try {
+			current[shard].addPosting(word, document, position);
+
+			documentLock.writeLock().lock();
+			try {
+				documents().updateCount(document, position);
+			} finally {
+				documentLock.writeLock().unlock();
+			}
+		} finally {
+			locks[shard].writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void add(String word, String location, int position) {
+		add(word, addDocument(location), position);
+	}
+
+	@Override
+	public void addAll(ArrayList<String> words, String location, int position) {
+		int document = addDocument(location);
+		for (String word : words) {
+			add(word, document, position++);
+		}
+	}
+
+	/**
+	 * Removes a document from every shard, locking one shard at a time, and then resets its word count while
+	 * only the document table is locked.
+	 *
+	 * @param location the location of the document to remove
+	 * @return true if the index had any words or a word count for the document
+	 */
+	@Override
+	public boolean removeDocument(String location) {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			return super.removeDocument(location);
+		}
+
+		int document;
+		documentLock.readLock().lock();
+		try {
+			document = documents().getId(location);
+		} finally {
+			documentLock.readLock().unlock();
+		}
+
+		if (document < 0) {
+			return false;
+		}
+
+		BitSet ids = new BitSet();
+		ids.set(document);
+		boolean removed = false;
+
+		for (int i = 0; i < current.length; i++) {
+			locks[i].writeLock().lock();
+			try {
+				removed |= current[i].removePostings(ids);
+			} finally {
+				locks[i].writeLock().unlock();
+			}
+		}
+
+		documentLock.writeLock().lock();
+		try {
+			removed |= documents().getCount(document) > 0;
+			documents().resetCount(document);
+		} finally {
+			documentLock.writeLock().unlock();
+		}
+
+		return removed;
+	}
+
+	/**
+	 * Removes a batch of documents from every shard in one pass over the words of each shard, locking one shard
+	 * at a time, and then resets their word counts while only the document table is locked.
+	 *
+	 * @param locations the locations of the documents to remove
+	 */
+	@Override
+	public void removeDocuments(Collection<String> locations) {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			super.removeDocuments(locations);
+			return;
+		}
+
+		BitSet ids;
+		documentLock.readLock().lock();
+		try {
+			ids = documentIds(locations);
+		} finally {
+			documentLock.readLock().unlock();
+		}
+
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		for (int i = 0; i < current.length; i++) {
+			locks[i].writeLock().lock();
+			try {
+				current[i].removePostings(ids);
+			} finally {
+				locks[i].writeLock().unlock();
+			}
+		}
+
+		documentLock.writeLock().lock();
+		try {
+			resetCounts(ids);
+		} finally {
+			documentLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Merges another inverted index into this index. The documents of the other index are assigned document IDs
+	 * while only the document table is locked, and then the words of each shard are merged while only that
+	 * shard is locked.
+	 *
+	 * @param other the inverted index to merge into this one
+	 */
+	@Override
+	public void combine(InvertedIndex other) {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			super.combine(other);
+			return;
+		}
+
+		int[] remap;
+		documentLock.writeLock().lock();
+		try {
+			remap = addDocuments(other);
+		} finally {
+			documentLock.writeLock().unlock();
+		}
+
+		List<List<String>> buckets = new ArrayList<>(current.length);
+		for (int i = 0; i < current.length; i++) {
+			buckets.add(new ArrayList<>());
+		}
+
+		for (String word : other.words()) {
+			buckets.get(shard(word)).add(word);
+		}
+
+		for (int i = 0; i < current.length; i++) {
+			List<String> bucket = buckets.get(i);
+
+			if (bucket.isEmpty()) {
+				continue;
+			}
+
+			locks[i].writeLock().lock();
+			try {
+				for (String word : bucket) {
+					current[i].addPostings(word, other.getPostings(word), remap);
+				}
+			} finally {
+				locks[i].writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Replaces a batch of documents while holding the write locks of every shard and of the document table, so
+	 * readers see either every change in the batch or none of them. The removals and the merge acquire the same
+	 * locks again, which the active writer is allowed to do.
+	 *
+	 * @param locations the locations of the documents to remove
+	 * @param other the inverted index holding the new contents of the documents
+	 */
+	@Override
+	public void replaceDocuments(Collection<String> locations, InvertedIndex other) {
+		if (shards() == null) {
+			super.replaceDocuments(locations, other);
+			return;
+		}
+
+		for (MultiReaderLock shardLock : locks) {
+			shardLock.writeLock().lock();
+		}
+		documentLock.writeLock().lock();
+
+		try {
+			removeDocuments(locations);
+			combine(other);
+		} finally {
+			documentLock.writeLock().unlock();
+			for (int i = locks.length - 1; i >= 0; i--) {
+				locks[i].writeLock().unlock();
+			}
+		}
+	}
+
+	@Override
+	public void writeIndex(Path path) throws IOException {
+		int[] touched = touched(allShards);
+		lockRead(touched);
+		try {
+			super.writeIndex(path);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public Map<String, Integer> getWordCount() {
+		int[] touched = touched();
+		lockRead(touched);
+		try {
+			return super.getWordCount();
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public String toString() {
+		int[] touched = touched(allShards);
+		lockRead(touched);
+		try {
+			return super.toString();
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public long version() {
+		int[] touched = touched();
+		lockRead(touched);
+		try {
+			return super.version();
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public int numWords() {
+		InvertedIndex[] current = shards();
+
+		if (current == null) {
+			return super.numWords();
+		}
+
+		lockRead(allShards);
+		try {
+			int count = 0;
+			for (InvertedIndex shard : current) {
+				count += shard.numWords();
+			}
+			return count;
+		} finally {
+			unlockRead(allShards);
+		}
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		int[] touched = touched(shard(word));
+		lockRead(touched);
+		try {
+			return super.hasWord(word);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public boolean hasLocation(String word, String location) {
+		int[] touched = touched(shard(word));
+		lockRead(touched);
+		try {
+			return super.hasLocation(word, location);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public Set<String> viewLocations(String word) {
+		int[] touched = touched(shard(word));
+		lockRead(touched);
+		try {
+			return super.viewLocations(word);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public boolean hasPosition(String word, String location, int position) {
+		int[] touched = touched(shard(word));
+		lockRead(touched);
+		try {
+			return super.hasPosition(word, location, position);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public Set<Integer> viewPositions(String word, String location) {
+		int[] touched = touched(shard(word));
+		lockRead(touched);
+		try {
+			return super.viewPositions(word, location);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public boolean hasCount(String location) {
+		int[] touched = touched();
+		lockRead(touched);
+		try {
+			return super.hasCount(location);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public Map<String, Integer> viewCount() {
+		int[] touched = touched();
+		lockRead(touched);
+		try {
+			return super.viewCount();
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public int getCount(String location) {
+		int[] touched = touched();
+		lockRead(touched);
+		try {
+			return super.getCount(location);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public List<SearchResult> exactSearch(Set<String> queryWords) {
+		int[] touched = isFrozen() ? null : shards(queryWords);
+		lockRead(touched);
+		try {
+			return super.exactSearch(queryWords);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public List<SearchResult> partialSearch(Set<String> queryWords) {
+		int[] touched = touched(allShards);
+		lockRead(touched);
+		try {
+			return super.partialSearch(queryWords);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public List<SearchResult> phraseSearch(List<String> phrase, int limit) {
+		int[] touched = isFrozen() ? null : shards(Set.copyOf(phrase));
+		lockRead(touched);
+		try {
+			return super.phraseSearch(phrase, limit);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public List<SearchResult> proximitySearch(List<String> words, int distance, int limit) {
+		int[] touched = isFrozen() ? null : shards(Set.copyOf(words));
+		lockRead(touched);
+		try {
+			return super.proximitySearch(words, distance, limit);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public List<SearchResult> booleanSearch(Set<String> required, Set<String> optional, Set<String> excluded, int limit, Scorer scorer) {
+		int[] touched = null;
+
+		if (!isFrozen()) {
+			TreeSet<String> words = new TreeSet<>(required);
+			words.addAll(optional);
+			words.addAll(excluded);
+			touched = shards(words);
+		}
+
+		lockRead(touched);
+		try {
+			return super.booleanSearch(required, optional, excluded, limit, scorer);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public List<SearchResult> search(Set<String> queryWords, boolean partialSearch, int limit, Scorer scorer) {
+		int[] touched = isFrozen() ? null : partialSearch ? allShards : shards(queryWords);
+		lockRead(touched);
+		try {
+			return super.search(queryWords, partialSearch, limit, scorer);
+		} finally {
+			unlockRead(touched);
+		}
+	}
+
+	@Override
+	public Set<String> viewWords() {
+		int[] touched = touched(allShards);
+		lockRead(touched);
+		try {
+			return super.viewWords();
+		} finally {
+			unlockRead(touched);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package edu.usfca.cs272;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer.ALGORITHM;
+
+/**
+ * A thread-safe stemmer that remembers the stems of the words it has stemmed,
+ * so words that repeat across files and queries are only stemmed once. Words
+ * not yet cached are stemmed with an English {@link SnowballStemmer} borrowed
+ * from a small pool, since those stemmers are not thread-safe. The pool keeps
+ * only a few idle stemmers, so any number of threads, including virtual
+ * threads, can stem without each creating a stemmer of its own.
+ *
+ * <p>
+ * The cache is bounded by a maximum number of words. It is split into segments
+ * by the hash of each word, each guarded by its own lock, so threads stemming
+ * different words rarely contend. Once a segment holds its share of the
+ * capacity, the least recently used word in that segment is evicted. The hit,
+ * miss, and eviction counters can be used to choose the capacity.
+ */
+public class StemCache implements Stemmer {
+	/** The default maximum number of words to cache. */
+	public static final int DEFAULT_CAPACITY = 100_000;
+
+	/** The most segments the cache is split into. */
+	private static final int SEGMENTS = 16;
+
+	/** The most idle stemmers kept for reuse. */
+	private static final int POOLED_STEMMERS = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+
+	/** The cache shared by the index builders and query builders, declared after the constants its constructor reads. */
+	public static final StemCache SHARED = new StemCache(DEFAULT_CAPACITY);
+
+	/** The segments of the cache, each mapping words to stems from least to most recently used. */
+	private final Segment[] segments;
+
+	/** The maximum number of words to cache. */
+	private final int capacity;
+
+	/** The idle stemmers used for words not yet cached. */
+	private final ArrayBlockingQueue<Stemmer> stemmers;
+
+	/** The number of words found in the cache. */
+	private final LongAdder hits;
+
+	/** The number of words that had to be stemmed. */
+	private final LongAdder misses;
+
+	/** The number of words evicted to make room for others. */
+	private final LongAdder evictions;
+
+	/**
+	 * A segment of the cache, holding at most its share of the capacity and
+	 * evicting its least recently used word once full. Every access must hold the
+	 * lock of the segment.
+	 */
+	private class Segment extends LinkedHashMap<String, String> {
+		/** Unused serial version. */
+		private static final long serialVersionUID = 1L;
+
+		/** The maximum number of words in this segment. */
+		private final int limit;
+
+		/**
+		 * Constructs an empty segment.
+		 *
+		 * @param limit the maximum number of words in this segment
+		 */
+		private Segment(int limit) {
+			super(16, 0.75f, true);
+			this.limit = limit;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			if (size() > limit) {
+				evictions.increment();
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Constructs an empty cache holding at most the number of words provided.
+	 *
+	 * @param capacity the maximum number of words to cache
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 */
+	public StemCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be at least 1.");
+		}
+
+		// every segment holds an equal share, so the segments never hold more than the capacity in total
+		int count = Math.min(SEGMENTS, capacity);
+		this.segments = new Segment[count];
+
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(capacity / count);
+		}
+
+		this.capacity = capacity;
+		this.stemmers = new ArrayBlockingQueue<>(POOLED_STEMMERS);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Returns the segment a word is cached in.
+	 *
+	 * @param word the word to find the segment of
+	 * @return the segment of the word
+	 */
+	private Segment segment(String word) {
+		int hash = word.hashCode();
+		hash ^= hash >>> 16;
+		return segments[Math.floorMod(hash, segments.length)];
+	}
+
+	@Override
+	public String stem(CharSequence word) {
+		String key = word.toString();
+		Segment segment = segment(key);
+		String stem;
+
+		synchronized (segment) {
+			stem = segment.get(key);
+		}
+
+		if (stem != null) {
+			hits.increment();
+			return stem;
+		}
+
+		misses.increment();
+
+		// stems without holding the lock of the segment, using an idle stemmer or a new one if every stemmer is busy
+		Stemmer stemmer = stemmers.poll();
+
+		if (stemmer == null) {
+			stemmer = new SnowballStemmer(ALGORITHM.ENGLISH);
+		}
+
+		stem = stemmer.stem(key).toString();
+		stemmers.offer(stemmer);
+
+		synchronized (segment) {
+			segment.put(key, stem);
+		}
+
+		return stem;
+	}
+
+	/**
+	 * Returns the number of words found in the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of words that were not in the cache and had to be
+	 * stemmed.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of words evicted from the cache to make room for
+	 * others.
+	 *
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of words cached.
+	 *
+	 * @return the number of words cached
+	 */
+	public int size() {
+		int size = 0;
+
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Returns the maximum number of words cached.
+	 *
+	 * @return the capacity of the cache
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Stems: %d of %d, Hits: %d, Misses: %d, Evictions: %d", size(), capacity, getHits(),
+				getMisses(), getEvictions());
+	}
+}
@@ -0,0 +1,40 @@
+package edu.usfca.cs272;
+
+/**
+ * Interface for queues that run tasks on a pool of worker threads. It is up to
+ * the user of a queue to keep track of whether there is any pending work
+ * remaining.
+ */
+public interface TaskQueue {
+
+	/**
+	 * Adds a task to the queue. A worker thread will run this task when available.
+	 * @param task work request (in the form of a {@link Runnable} object)
+	 * @throws IllegalStateException if the queue has been shut down
+	 */
+	void execute(Runnable task);
+
+	/**
+	 * Waits for all pending tasks to be finished. Does not terminate the worker
+	 * threads so that the queue can continue to be used.
+	 */
+	void finish();
+
+	/**
+	 * Waits for all pending tasks to be finished and the worker threads to
+	 * terminate. The queue cannot be reused after this call completes.
+	 */
+	void join();
+
+	/**
+	 * Asks the queue to shutdown. Any unprocessed tasks will not be finished, but
+	 * tasks in progress will not be interrupted.
+	 */
+	void shutdown();
+
+	/**
+	 * Returns the number of worker threads being used by the queue.
+	 * @return number of worker threads
+	 */
+	int size();
+}
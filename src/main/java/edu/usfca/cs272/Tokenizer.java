@@ -0,0 +1,237 @@
+package edu.usfca.cs272;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Splits text into clean, lowercase words by scanning its characters. Produces
+ * exactly the same words as {@link FileStemmer#parse(String)}, which normalizes,
+ * cleans, lowercases, strips, and splits the text in five separate passes with
+ * several intermediate strings.
+ *
+ * <p>
+ * Text that is entirely ASCII is already in normalized form, so it is split in
+ * a single scan and letters are lowercased as they are copied. Any other text is
+ * decomposed with {@link Normalizer.Form#NFD} first so diacritical marks are
+ * separated from their letters and dropped, and is then cleaned and split by
+ * code point.
+ *
+ * <p>
+ * As with the regular expressions used by {@link FileStemmer}, letters are the
+ * code points that are {@linkplain Character#isAlphabetic(int) alphabetic},
+ * whitespace is the Unicode {@code White_Space} property, and every other code
+ * point is removed without separating the letters around it.
+ */
+public class Tokenizer {
+	/** The words returned for text without any letters. */
+	private static final String[] EMPTY = new String[0];
+
+	/** The default number of words a line is expected to hold. */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Parses the text into an array of clean words.
+	 *
+	 * @param text the text to clean and split
+	 * @return an array of {@link String} objects
+	 *
+	 * @see FileStemmer#parse(String)
+	 */
+	public static String[] parse(String text) {
+		String[] words = parseAscii(text);
+		return words != null ? words : parseUnicode(Normalizer.normalize(text, Normalizer.Form.NFD));
+	}
+
+	/**
+	 * Parses text that is entirely ASCII in a single scan, lowercasing letters as
+	 * they are copied.
+	 *
+	 * @param text the text to parse
+	 * @return the clean words, or null if the text is not entirely ASCII
+	 */
+	private static String[] parseAscii(String text) {
+		// the language rules of the default locale may change how 'I' is lowercased
+		boolean asciiLowercase = hasAsciiLowercase(Locale.getDefault());
+
+		String[] words = EMPTY;
+		int count = 0;
+		char[] word = null;
+		int length = 0;
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (c >= 0x80) {
+				return null;
+			}
+
+			if (c >= 'a' && c <= 'z') {
+				if (word == null) {
+					word = new char[text.length() - i];
+				}
+				word[length++] = c;
+			}
+			else if (c >= 'A' && c <= 'Z') {
+				if (word == null) {
+					word = new char[text.length() - i];
+				}
+				word[length++] = asciiLowercase || c != 'I' ? (char) (c + ('a' - 'A')) : c;
+			}
+			else if (isSpace(c) && length > 0) {
+				words = append(words, count++, toWord(word, length, asciiLowercase));
+				length = 0;
+			}
+		}
+
+		if (length > 0) {
+			words = append(words, count++, toWord(word, length, asciiLowercase));
+		}
+
+		return trim(words, count);
+	}
+
+	/**
+	 * Parses text that has already been decomposed into normalized form by code
+	 * point. The letters and whitespace are kept and lowercased together, since
+	 * the lowercase form of some letters depends on the letters around them, and
+	 * the result is then split into words.
+	 *
+	 * @param text the normalized text to parse
+	 * @return the clean words
+	 */
+	private static String[] parseUnicode(String text) {
+		StringBuilder cleaned = new StringBuilder(text.length());
+
+		for (int i = 0; i < text.length(); ) {
+			int c = text.codePointAt(i);
+			i += Character.charCount(c);
+
+			if (Character.isAlphabetic(c) || isSpace(c)) {
+				cleaned.appendCodePoint(c);
+			}
+		}
+
+		String lowered = cleaned.toString().toLowerCase();
+		String[] words = EMPTY;
+		int count = 0;
+		int start = -1;
+
+		// whether the first character kept is whitespace that String.strip() keeps
+		boolean leadingEmpty = false;
+		boolean kept = false;
+
+		for (int i = 0; i < lowered.length(); ) {
+			int c = lowered.codePointAt(i);
+
+			if (isSpace(c)) {
+				if (!kept && !Character.isWhitespace(c)) {
+					leadingEmpty = true;
+				}
+
+				if (start >= 0) {
+					words = append(words, count++, lowered.substring(start, i));
+					start = -1;
+				}
+			}
+			else if (start < 0) {
+				start = i;
+			}
+
+			kept |= !Character.isWhitespace(c);
+			i += Character.charCount(c);
+		}
+
+		if (start >= 0) {
+			words = append(words, count++, lowered.substring(start));
+		}
+
+		// splitting keeps an empty first word before such whitespace, but only if a word follows it
+		if (leadingEmpty && count > 0) {
+			words = append(words, count++, "");
+			System.arraycopy(words, 0, words, 1, count - 1);
+			words[0] = "";
+		}
+
+		return trim(words, count);
+	}
+
+	/**
+	 * Determines whether the code point is whitespace as defined by the Unicode
+	 * {@code White_Space} property, which is what {@code \p{Space}} matches in
+	 * {@link FileStemmer#SPLIT_REGEX}.
+	 *
+	 * @param c the code point to check
+	 * @return true if the code point is whitespace
+	 */
+	public static boolean isSpace(int c) {
+		if (c < 0x80) {
+			return c == ' ' || (c >= '\t' && c <= '\r');
+		}
+
+		return switch (Character.getType(c)) {
+			case Character.SPACE_SEPARATOR, Character.LINE_SEPARATOR, Character.PARAGRAPH_SEPARATOR -> true;
+			default -> c == 0x85;
+		};
+	}
+
+	/**
+	 * Determines whether {@link String#toLowerCase()} lowercases every ASCII
+	 * letter to its ASCII lowercase letter in the locale provided.
+	 *
+	 * @param locale the locale to check
+	 * @return true if ASCII letters are lowercased the same way in every case
+	 */
+	private static boolean hasAsciiLowercase(Locale locale) {
+		return switch (locale.getLanguage()) {
+			case "tr", "az", "lt" -> false;
+			default -> true;
+		};
+	}
+
+	/**
+	 * Creates a word from the ASCII characters copied, lowercasing it with the
+	 * rules of the default locale if it could not be lowercased while copying.
+	 *
+	 * @param word the characters of the word
+	 * @param length the number of characters in the word
+	 * @param asciiLowercase whether the characters are already lowercase
+	 * @return the word
+	 */
+	private static String toWord(char[] word, int length, boolean asciiLowercase) {
+		String string = new String(word, 0, length);
+		return asciiLowercase ? string : string.toLowerCase();
+	}
+
+	/**
+	 * Adds a word to the array of words, growing it if it is full.
+	 *
+	 * @param words the words found so far
+	 * @param count the number of words found so far
+	 * @param word the word to add
+	 * @return the array of words, which may be a new array
+	 */
+	private static String[] append(String[] words, int count, String word) {
+		if (count == words.length) {
+			words = Arrays.copyOf(words, Math.max(DEFAULT_CAPACITY, count + (count >> 1)));
+		}
+
+		words[count] = word;
+		return words;
+	}
+
+	/**
+	 * Trims the array of words to the number of words found.
+	 *
+	 * @param words the words found
+	 * @param count the number of words found
+	 * @return an array of exactly the words found
+	 */
+	private static String[] trim(String[] words, int count) {
+		return count == words.length ? words : Arrays.copyOf(words, count);
+	}
+
+	/** Prevent instantiating this class of static methods. */
+	private Tokenizer() {
+	}
+}
@@ -0,0 +1,257 @@
+package edu.usfca.cs272;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Checks that {@link Tokenizer#parse(String)} returns exactly the words of
+ * {@link FileStemmer#parse(String)}, which it replaced for every builder, and
+ * measures how fast each of them parses the same lines. Run with:
+ *
+ * <pre>
+ * java edu.usfca.cs272.TokenizerCheck [-text path] [-random lines] [-seed seed] [-rounds rounds]
+ * </pre>
+ *
+ * <p>
+ * The lines checked are every line of the text files at {@code -text}, if
+ * provided, and {@code -random} lines of random Unicode text (10000 by
+ * default). The random lines mix ASCII, accented and combining characters,
+ * Unicode whitespace, digits and punctuation, letters outside the basic
+ * multilingual plane, and arbitrary code points. Every line that the two
+ * methods parse differently is reported, and the exit status is 1 if there is
+ * any such line.
+ *
+ * <p>
+ * The throughput of each method is then reported in megabytes of UTF-8 text per
+ * second, as the best of {@code -rounds} passes over every line (5 by default).
+ */
+public class TokenizerCheck {
+	/** The number of random lines checked by default. */
+	public static final int DEFAULT_LINES = 10_000;
+
+	/** The number of timed passes over the lines by default. */
+	public static final int DEFAULT_ROUNDS = 5;
+
+	/** The number of mismatched lines printed before the rest are only counted. */
+	private static final int MAX_REPORTED = 10;
+
+	/** The largest number of code points in a random line. */
+	private static final int MAX_LENGTH = 80;
+
+	/** The number of bytes in a megabyte. */
+	private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+	/** The number of nanoseconds in a second. */
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+	/** Code points that are not letters but are easy to get wrong when splitting. */
+	private static final int[] SPECIAL = {
+			'\t', '\n', 0x0B, '\f', '\r', 0x1C, 0x1F, 0x85, 0xA0, 0x1680, 0x2000, 0x2007, 0x200B, 0x2028, 0x2029,
+			0x202F, 0x205F, 0x3000, 0xFEFF, 0x0301, 0x0308, 0x0327, 0x00AD, 0x2160, 0x24B6, 0x02B0, 0x0345, 0x00DF,
+			0x0130, 0x0131, 0x1E9E, 0x212A, 0xFB01, 0x01C5, 0x1D400, 0x1F600, 0x10400, 0x0660, 0x00BD
+	};
+
+	/**
+	 * Checks and times both methods on the lines described by the arguments.
+	 *
+	 * @param args flag/value pairs choosing the lines to check
+	 */
+	public static void main(String[] args) {
+		ArgumentParser parser = new ArgumentParser(args);
+		List<String> lines = new ArrayList<>();
+
+		if (parser.hasFlag("-text")) {
+			Path input = parser.getPath("-text");
+
+			try {
+				lines.addAll(readLines(input));
+			} catch (IOException | NullPointerException e) {
+				System.err.println("Error reading lines from path: " + input);
+				System.exit(1);
+			}
+		}
+
+		int files = lines.size();
+		Random random = new Random(parser.getInteger("-seed", 272));
+		int count = Math.max(parser.getInteger("-random", DEFAULT_LINES), 0);
+
+		for (int i = 0; i < count; i++) {
+			lines.add(randomLine(random));
+		}
+
+		System.out.printf("Lines: %d from files, %d random%n", files, count);
+
+		int mismatches = check(lines);
+		System.out.printf("Mismatches: %d%n", mismatches);
+
+		long bytes = 0;
+		for (String line : lines) {
+			bytes += line.getBytes(UTF_8).length;
+		}
+
+		int rounds = Math.max(parser.getInteger("-rounds", DEFAULT_ROUNDS), 1);
+		double regex = throughput(lines, bytes, rounds, FileStemmer::parse);
+		double scanning = throughput(lines, bytes, rounds, Tokenizer::parse);
+
+		System.out.printf("FileStemmer.parse: %.1f MB/s%n", regex);
+		System.out.printf("Tokenizer.parse: %.1f MB/s (%.1fx)%n", scanning, scanning / regex);
+
+		if (mismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads every line of the text file or the text files in the directory.
+	 *
+	 * @param input the text file or directory of text files
+	 * @return the lines read
+	 * @throws IOException if an IO error occurs
+	 * @see InvertedIndexBuilder#isTextFile(Path)
+	 */
+	private static List<String> readLines(Path input) throws IOException {
+		List<String> lines = new ArrayList<>();
+
+		if (Files.isDirectory(input)) {
+			try (Stream<Path> paths = Files.walk(input)) {
+				for (Path file : paths.filter(InvertedIndexBuilder::isTextFile).sorted().toList()) {
+					lines.addAll(Files.readAllLines(file, UTF_8));
+				}
+			}
+		} else {
+			lines.addAll(Files.readAllLines(input, UTF_8));
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Generates a line of random text. Each code point is ASCII most of the time,
+	 * and otherwise an accented Latin letter, one of the {@link #SPECIAL} code
+	 * points, or any code point that is not a surrogate.
+	 *
+	 * @param random the source of randomness
+	 * @return the random line
+	 */
+	private static String randomLine(Random random) {
+		int length = random.nextInt(MAX_LENGTH + 1);
+		StringBuilder line = new StringBuilder(length * 2);
+
+		for (int i = 0; i < length; i++) {
+			int kind = random.nextInt(10);
+			int c;
+
+			if (kind < 6) {
+				c = random.nextInt(0x20, 0x7F);
+			} else if (kind < 7) {
+				c = random.nextInt(0xC0, 0x250);
+			} else if (kind < 9) {
+				c = SPECIAL[random.nextInt(SPECIAL.length)];
+			} else {
+				do {
+					c = random.nextInt(Character.MAX_CODE_POINT + 1);
+				} while (Character.getType(c) == Character.SURROGATE);
+			}
+
+			line.appendCodePoint(c);
+		}
+
+		return line.toString();
+	}
+
+	/**
+	 * Compares the words of both methods on every line, and prints the first few
+	 * lines they parse differently.
+	 *
+	 * @param lines the lines to check
+	 * @return the number of lines parsed differently
+	 */
+	private static int check(List<String> lines) {
+		int mismatches = 0;
+
+		for (String line : lines) {
+			String[] expected = FileStemmer.parse(line);
+			String[] actual = Tokenizer.parse(line);
+
+			if (!Arrays.equals(expected, actual)) {
+				if (mismatches < MAX_REPORTED) {
+					System.err.println("Mismatch on line: " + escape(line));
+					System.err.println("  FileStemmer.parse: " + Arrays.toString(expected));
+					System.err.println("  Tokenizer.parse: " + Arrays.toString(actual));
+				}
+				mismatches++;
+			}
+		}
+
+		return mismatches;
+	}
+
+	/**
+	 * Measures how fast a method parses the lines, as the best of several passes
+	 * after one pass to warm up.
+	 *
+	 * @param lines the lines to parse
+	 * @param bytes the number of bytes in the lines as UTF-8
+	 * @param rounds the number of timed passes
+	 * @param parse the method to measure
+	 * @return the throughput in megabytes per second
+	 */
+	private static double throughput(List<String> lines, long bytes, int rounds, Function<String, String[]> parse) {
+		long best = Long.MAX_VALUE;
+		long words = 0;
+
+		for (int round = 0; round <= rounds; round++) {
+			long start = System.nanoTime();
+
+			for (String line : lines) {
+				words += parse.apply(line).length;
+			}
+
+			long elapsed = System.nanoTime() - start;
+
+			if (round > 0) {
+				best = Math.min(best, elapsed);
+			}
+		}
+
+		// uses the words parsed so the passes cannot be optimized away
+		if (words < 0) {
+			throw new IllegalStateException();
+		}
+
+		return bytes / BYTES_PER_MEGABYTE / (Math.max(best, 1) / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Escapes the code points of a line that are not printable ASCII.
+	 *
+	 * @param line the line to escape
+	 * @return the escaped line
+	 */
+	private static String escape(String line) {
+		StringBuilder escaped = new StringBuilder();
+
+		line.codePoints().forEach(c -> {
+			if (c >= 0x20 && c < 0x7F) {
+				escaped.appendCodePoint(c);
+			} else {
+				escaped.append(String.format("\\u{%X}", c));
+			}
+		});
+
+		return escaped.toString();
+	}
+
+	/** Prevent instantiating this class of static methods. */
+	private TokenizerCheck() {
+	}
+}
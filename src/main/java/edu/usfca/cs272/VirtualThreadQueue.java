@@ -0,0 +1,152 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A work queue with the same contract as {@link WorkQueue} that runs every task
+ * on its own virtual thread instead of a fixed pool of platform threads, so
+ * thousands of tasks blocked on slow disks can be in flight at once without
+ * sizing a pool by hand.
+ *
+ * <p>
+ * Virtual threads are cheap to block but still share the carrier threads for
+ * computation, so the queue also provides a {@link #getLimiter() limiter} that
+ * tasks acquire around their CPU-bound work, such as stemming a file that has
+ * already been read into memory.
+ */
+public class VirtualThreadQueue implements TaskQueue {
+	/** Creates a new virtual thread for every task. */
+	private final ThreadFactory factory;
+
+	/** Bounds how many tasks may run CPU-bound work at once. */
+	private final Semaphore limiter;
+
+	/** The number of permits of the limiter. */
+	private final int permits;
+
+	/** Tracks any unfinished tasks */
+	private final AtomicInteger pending;
+
+	/** Used to signal that no more tasks may be executed. */
+	private volatile boolean shutdown;
+
+	/** Logger used for this class. */
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Starts a virtual thread queue that lets as many tasks run CPU-bound work at
+	 * once as there are processors available.
+	 *
+	 * @see #VirtualThreadQueue(int)
+	 */
+	public VirtualThreadQueue() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Starts a virtual thread queue that lets the specified number of tasks run
+	 * CPU-bound work at once.
+	 *
+	 * @param permits number of tasks that may run CPU-bound work at once; should
+	 *   be at least 1
+	 */
+	public VirtualThreadQueue(int permits) {
+		this.factory = Thread.ofVirtual().name("Virtual", 0).factory();
+		this.permits = permits;
+		this.limiter = new Semaphore(permits);
+		this.pending = new AtomicInteger();
+		this.shutdown = false;
+	}
+
+	/**
+	 * Returns the limiter tasks should acquire around CPU-bound work, so that
+	 * only a bounded number of virtual threads compete for the carrier threads.
+	 *
+	 * @return the limiter shared by every task of this queue
+	 */
+	public Semaphore getLimiter() {
+		return limiter;
+	}
+
+	@Override
+	public void execute(Runnable task) throws IllegalStateException {
+		if (shutdown) {
+			throw new IllegalStateException("Task shut down, illegal state");
+		}
+
+		pending.incrementAndGet();
+
+		try {
+			factory.newThread(() -> {
+				try {
+					if (!shutdown) {
+						task.run();
+					}
+				} catch (RuntimeException e) {
+					log.catching(Level.WARN, e);
+				} finally {
+					decrement();
+				}
+			}).start();
+		} catch (RuntimeException e) {
+			decrement();
+			throw new IllegalStateException("Task shut down, illegal state", e);
+		}
+	}
+
+	@Override
+	public synchronized void finish() {
+		try {
+			while (pending.get() > 0) {
+				this.wait();
+			}
+		} catch (InterruptedException e) {
+			log.catching(Level.WARN, e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for all pending tasks to finish, which also ends every virtual thread
+	 * started by this queue, and then shuts the queue down.
+	 */
+	@Override
+	public void join() {
+		finish();
+		shutdown();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	/**
+	 * Returns the number of tasks that may run CPU-bound work at once, since
+	 * the number of virtual threads is not bounded.
+	 *
+	 * @return number of permits of the limiter
+	 */
+	@Override
+	public int size() {
+		return permits;
+	}
+
+	/**
+	 * Decrements the count of pending tasks and notifies waiting threads if no
+	 * tasks remain.
+	 */
+	private void decrement() {
+		if (pending.decrementAndGet() == 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+}
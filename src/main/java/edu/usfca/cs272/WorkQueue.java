@@ -18,7 +18,7 @@ import org.apache.logging.log4j.Logger;
  * @author CS 272 Software Development (University of San Francisco)
  * @version Spring 2024
  */
-public class WorkQueue {
+public class WorkQueue implements TaskQueue {
 	/** Workers that wait until work (or tasks) are available. */
 	private final Worker[] workers;
 
@@ -72,6 +72,7 @@ public class WorkQueue {
 	 * @param task work request (in the form of a {@link Runnable} object)
 	 * @throws IllegalStateException if this method is called when there are no pending tasks
 	 */
+	@Override
 	public void execute(Runnable task) throws IllegalStateException {
 		synchronized (tasks) {
 			if (shutdown) {
@@ -92,6 +93,7 @@ public class WorkQueue {
 	 * Waits for all pending work (or tasks) to be finished. Does not terminate the
 	 * worker threads so that the work queue can continue to be used.
 	 */
+	@Override
 	public synchronized void finish() {
 		try {
 			while (pending > 0) {
@@ -110,6 +112,7 @@ public class WorkQueue {
 	 *
 	 * @throws IllegalStateException if this method is called when there are no pending tasks.
 	 */
+	@Override
 	public void join() {
 		try {
 
@@ -131,6 +134,7 @@ public class WorkQueue {
 	 * Asks the queue to shutdown. Any unprocessed work (or tasks) will not be
 	 * finished, but threads in-progress will not be interrupted.
 	 */
+	@Override
 	public void shutdown() {
 		// safe to do unsynchronized due to volatile keyword
 
@@ -145,6 +149,7 @@ public class WorkQueue {
 	 *
 	 * @return number of worker threads
 	 */
+	@Override
 	public int size() {
 		return workers.length;
 	}
@@ -0,0 +1,134 @@
+package edu.usfca.cs272;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A work queue with the same contract as {@link WorkQueue} that is backed by a
+ * {@link ForkJoinPool} instead of a single shared list. Every worker thread has
+ * its own deque of tasks, and idle workers steal tasks from the deques of busy
+ * workers. Tasks executed from a worker thread (such as the tasks for the files
+ * of a directory) are pushed onto that worker's own deque, so adding and taking
+ * tasks rarely contends with other threads.
+ *
+ * <p>
+ * Pending tasks are tracked with an atomic counter, so the monitor of this queue
+ * is only entered when the last pending task finishes or when a thread waits in
+ * {@link #finish()}.
+ */
+public class WorkStealingQueue implements TaskQueue {
+	/** The pool of worker threads with work-stealing deques. */
+	private final ForkJoinPool pool;
+
+	/** Tracks any unfinished tasks */
+	private final AtomicInteger pending;
+
+	/** Used to signal the workers should skip any unprocessed tasks. */
+	private volatile boolean shutdown;
+
+	/** Logger used for this class. */
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Starts a work-stealing queue with the default number of threads.
+	 *
+	 * @see #WorkStealingQueue(int)
+	 */
+	public WorkStealingQueue() {
+		this(WorkQueue.DEFAULT);
+	}
+
+	/**
+	 * Starts a work-stealing queue with the specified number of threads.
+	 *
+	 * @param threads number of worker threads; should be greater than 1
+	 */
+	public WorkStealingQueue(int threads) {
+		this.pool = new ForkJoinPool(threads);
+		this.pending = new AtomicInteger();
+		this.shutdown = false;
+	}
+
+	@Override
+	public void execute(Runnable task) throws IllegalStateException {
+		if (shutdown) {
+			throw new IllegalStateException("Task shut down, illegal state");
+		}
+
+		pending.incrementAndGet();
+
+		try {
+			pool.execute(() -> {
+				try {
+					if (!shutdown) {
+						task.run();
+					}
+				} catch (RuntimeException e) {
+					log.catching(Level.WARN, e);
+				} finally {
+					decrement();
+				}
+			});
+		} catch (RuntimeException e) {
+			decrement();
+			throw new IllegalStateException("Task shut down, illegal state", e);
+		}
+	}
+
+	@Override
+	public synchronized void finish() {
+		try {
+			while (pending.get() > 0) {
+				this.wait();
+			}
+		} catch (InterruptedException e) {
+			log.catching(Level.WARN, e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void join() {
+		try {
+			finish();
+			shutdown();
+
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				log.debug("Waiting for work-stealing workers to terminate.");
+			}
+		}
+		catch (InterruptedException e) {
+			System.err.println("Warning: Work queue interrupted while joining.");
+			log.catching(Level.WARN, e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		pool.shutdown();
+	}
+
+	@Override
+	public int size() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Decrements the count of pending tasks and notifies waiting threads if no
+	 * tasks remain.
+	 */
+	private void decrement() {
+		if (pending.decrementAndGet() == 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+}